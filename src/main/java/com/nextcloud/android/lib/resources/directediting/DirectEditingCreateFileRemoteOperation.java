@@ -90,7 +90,7 @@ public class DirectEditingCreateFileRemoteOperation extends RemoteOperation {
                 result.setSingleData(url);
             } else {
                 result = new RemoteOperationResult(false, postMethod);
-                client.exhaustResponse(postMethod.getResponseBodyAsStream());
+                client.exhaustResponse(postMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -78,7 +78,7 @@ public class DirectEditingObtainListOfTemplatesRemoteOperation extends OCSRemote
                 result.setSingleData(templateList);
             } else {
                 result = new RemoteOperationResult(false, getMethod);
-                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                client.exhaustResponse(getMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
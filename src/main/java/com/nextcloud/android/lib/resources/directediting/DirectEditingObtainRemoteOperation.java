@@ -68,7 +68,7 @@ public class DirectEditingObtainRemoteOperation extends OCSRemoteOperation {
                 result.setSingleData(directEditing);
             } else {
                 result = new RemoteOperationResult(false, getMethod);
-                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                client.exhaustResponse(getMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
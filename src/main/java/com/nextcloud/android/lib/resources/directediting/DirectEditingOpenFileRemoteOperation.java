@@ -79,7 +79,7 @@ public class DirectEditingOpenFileRemoteOperation extends RemoteOperation {
                 result.setSingleData(url);
             } else {
                 result = new RemoteOperationResult(false, postMethod);
-                client.exhaustResponse(postMethod.getResponseBodyAsStream());
+                client.exhaustResponse(postMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -34,7 +34,9 @@ import com.owncloud.android.lib.common.OwnCloudClientFactory
 import com.owncloud.android.lib.common.accounts.AccountUtils
 import com.owncloud.android.lib.common.network.AdvancedSslSocketFactory
 import com.owncloud.android.lib.common.network.NetworkUtils
+import com.owncloud.android.lib.common.network.PermanentRedirectCache
 import com.owncloud.android.lib.common.network.RedirectionPath
+import com.owncloud.android.lib.common.network.RequestAbortScope
 import com.owncloud.android.lib.common.operations.RemoteOperation
 import com.owncloud.android.lib.common.operations.RemoteOperationResult
 import com.owncloud.android.lib.common.utils.Log_OC
@@ -51,20 +53,89 @@ import java.util.concurrent.TimeUnit
 import javax.net.ssl.SSLSocketFactory
 import javax.net.ssl.X509TrustManager
 
-public class NextcloudClient(var baseUri: Uri, val context: Context) {
-    /*companion object {
-        //@JvmStatic
-        //val TAG = NextcloudClient::class.java.simpleName
+public class NextcloudClient(baseUri: Uri, val context: Context) {
+    companion object {
+        const val DEFAULT_MAX_IDLE_CONNECTIONS = 5
+        const val DEFAULT_KEEP_ALIVE_DURATION_MS = 5 * 60 * 1000L
 
-    }*/
+        /**
+         * Concurrent calls allowed per host, OkHttp's own default. The dispatcher limits calls before a connection
+         * is chosen, so this cannot depend on the protocol; over HTTP/1.1 every call needs its own connection.
+         * Callers that know the server speaks HTTP/2, e.g. from [OkHttpMethodBase.getProtocol], can allow more
+         * streams on its connection with [setMaxRequestsPerHost].
+         */
+        const val DEFAULT_MAX_REQUESTS_PER_HOST = 5
 
-    var client: OkHttpClient = OkHttpClient.Builder()
+        private var baseClient: OkHttpClient? = null
+        private var maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS
+        private var keepAliveDurationMs = DEFAULT_KEEP_ALIVE_DURATION_MS
+        private val dispatcher = Dispatcher().apply { maxRequestsPerHost = DEFAULT_MAX_REQUESTS_PER_HOST }
+
+        /**
+         * Returns the process-wide client every [NextcloudClient] derives from, so that all accounts share
+         * one connection pool, one dispatcher and one SSL context.
+         */
+        @JvmStatic
+        @Synchronized
+        fun getBaseClient(context: Context): OkHttpClient {
+            var base = baseClient
+            if (base == null) {
+                val sslSocketFactory = NetworkUtils.getAdvancedSslSocketFactory(context)
+                base = OkHttpClient.Builder()
+                        .connectionPool(ConnectionPool(maxIdleConnections, keepAliveDurationMs, TimeUnit.MILLISECONDS))
+                        .dispatcher(dispatcher)
+                        .sslSocketFactory(sslSocketFactory.sslContext.socketFactory, sslSocketFactory.trustManager)
+                        .build()
+                baseClient = base
+            }
+            return base!!
+        }
+
+        /**
+         * Sets the number of idle connections kept open and how long they are kept alive.
+         *
+         * Only clients created after the call use the new pool; existing ones keep the old pool until they
+         * are discarded.
+         */
+        @JvmStatic
+        @Synchronized
+        fun setConnectionPool(maxIdleConnections: Int, keepAliveDurationMs: Long) {
+            require(maxIdleConnections >= 0) { "maxIdleConnections < 0: $maxIdleConnections" }
+            require(keepAliveDurationMs > 0) { "keepAliveDurationMs <= 0: $keepAliveDurationMs" }
+
+            this.maxIdleConnections = maxIdleConnections
+            this.keepAliveDurationMs = keepAliveDurationMs
+            baseClient = baseClient?.newBuilder()
+                    ?.connectionPool(ConnectionPool(maxIdleConnections, keepAliveDurationMs, TimeUnit.MILLISECONDS))
+                    ?.build()
+        }
+
+        /**
+         * Sets how many calls to the same host may run at once; calls beyond this are queued by the dispatcher.
+         */
+        @JvmStatic
+        fun setMaxRequestsPerHost(maxRequestsPerHost: Int) {
+            dispatcher.maxRequestsPerHost = maxRequestsPerHost
+        }
+    }
+
+    var client: OkHttpClient = getBaseClient(context).newBuilder()
             .cookieJar(CookieJar.NO_COOKIES)
-            .sslSocketFactory(NetworkUtils.getAdvancedSslSocketFactory(context).sslContext.socketFactory, NetworkUtils.getAdvancedSslSocketFactory(context).trustManager)
             .callTimeout(OwnCloudClientFactory.DEFAULT_DATA_TIMEOUT_LONG, TimeUnit.MILLISECONDS)
             .build()
 
     val TAG = NextcloudClient::class.java.simpleName
+
+    private val permanentRedirects = PermanentRedirectCache()
+
+    var baseUri: Uri = baseUri
+        set(value) {
+            if (value != field) {
+                // redirections learnt for the previous server may not apply anymore
+                permanentRedirects.clear()
+            }
+            field = value
+        }
     /*var sslSocketFactory: SSLSocketFactory = NetworkUtils.getAdvancedSslSocketFactory(context).sslContext.socketFactory;
     var certificateChainCleaner: CertificateChainCleaner = CertificateChainCleaner.get(NetworkUtils.getAdvancedSslSocketFactory(context).trustManager)
     var certificatePinner: CertificatePinner = CertificatePinner.Builder().add(baseUri.host,CertificatePinner.pin(NetworkUtils.getAdvancedSslSocketFactory(context).trustManager.acceptedIssuers.get(0))).build();
@@ -83,9 +154,12 @@ public class NextcloudClient(var baseUri: Uri, val context: Context) {
         return method.execute(this)
     }
 
+    @Throws(IOException::class)
     fun newCall(request: Request): Call {
         this.request = request
-        return client.newCall(request)
+        val call = client.newCall(request)
+        RequestAbortScope.attach(call)
+        return call
     }
 
     fun getRequestHeader(name: String): String? {
@@ -98,49 +172,122 @@ public class NextcloudClient(var baseUri: Uri, val context: Context) {
         var status = method.getStatusCode()
         val result = RedirectionPath(status, OwnCloudClient.MAX_REDIRECTIONS_COUNT)
 
-        while (redirectionsCount < OwnCloudClient.MAX_REDIRECTIONS_COUNT &&
-                (status == HttpStatus.SC_MOVED_PERMANENTLY ||
-                        status == HttpStatus.SC_MOVED_TEMPORARILY ||
-                        status == HttpStatus.SC_TEMPORARY_REDIRECT)) {
-            var location = method.getResponseHeader("Location")
-            if (location == null) {
-                location = method.getResponseHeader("location")
-            }
-            if (location != null) {
-                Log_OC.d(TAG, "Location to redirect: " + location)
-                result.addLocation(location)
-                // Release the connection to avoid reach the max number of connections per host
-                // due to it will be set a different url
-                method.releaseConnection()
-                method.uri = location
-                var destination = getRequestHeader("Destination")
-
-                if (destination == null) {
-                    destination = getRequestHeader("destination")
-                }
-
-                if (destination != null) {
-                    val suffixIndex = location.lastIndexOf(AccountUtils.WEBDAV_PATH_4_0)
-                    val redirectionBase = location.substring(0, suffixIndex)
-                    val destinationStr = destination
-                    val destinationPath = destinationStr.substring(baseUri.toString().length)
-                    val redirectedDestination = redirectionBase + destinationPath
-                    destination = redirectedDestination
-
-                    if (getRequestHeader("Destination").isNullOrEmpty()) {
-                        method.requestHeaders.put("destination", destination)
-                    } else {
-                        method.requestHeaders.put("Destination", destination)
-                    }
-                }
+        while (redirectionsCount < OwnCloudClient.MAX_REDIRECTIONS_COUNT && isRedirection(status)) {
+            if (prepareRedirection(method, result)) {
                 status = method.execute(this)
                 result.addStatus(status)
                 redirectionsCount++
             } else {
-                Log_OC.d(TAG, "No location to redirect!")
-                status = HttpStatus.SC_NOT_FOUND
+                status = result.getLastStatus()
             }
         }
         return result
     }
+
+    /**
+     * Asynchronous counterpart of [followRedirection]; each redirection is enqueued instead of executed, and
+     * the listener receives the same final status [OkHttpMethodBase.execute] would return.
+     */
+    fun followRedirectionAsync(method: OkHttpMethodBase, listener: OnMethodFinishListener) {
+        val result = RedirectionPath(method.getStatusCode(), OwnCloudClient.MAX_REDIRECTIONS_COUNT)
+        followRedirectionAsync(method, result, 0, listener)
+    }
+
+    private fun followRedirectionAsync(method: OkHttpMethodBase,
+                                       result: RedirectionPath,
+                                       redirectionsCount: Int,
+                                       listener: OnMethodFinishListener) {
+        if (redirectionsCount >= OwnCloudClient.MAX_REDIRECTIONS_COUNT ||
+                !isRedirection(method.getStatusCode()) ||
+                !prepareRedirection(method, result)) {
+            listener.onMethodFinish(method, result.getLastStatus())
+            return
+        }
+
+        method.enqueueRequest(this, object : Callback {
+            override fun onResponse(call: Call, response: Response) {
+                method.response = response
+                result.addStatus(response.code())
+                followRedirectionAsync(method, result, redirectionsCount + 1, listener)
+            }
+
+            override fun onFailure(call: Call, e: IOException) {
+                listener.onMethodFailure(method, e)
+            }
+        })
+    }
+
+    private fun isRedirection(status: Int): Boolean {
+        return status == HttpStatus.SC_MOVED_PERMANENTLY ||
+                status == HttpStatus.SC_MOVED_TEMPORARILY ||
+                status == HttpStatus.SC_TEMPORARY_REDIRECT ||
+                status == PermanentRedirectCache.HTTP_PERMANENT_REDIRECT
+    }
+
+    /**
+     * Sends the method straight to the location its URI was permanently redirected to, if known.
+     */
+    fun applyPermanentRedirection(method: OkHttpMethodBase) {
+        val location = permanentRedirects.get(method.uri)
+        if (location != null) {
+            Log_OC.d(TAG, "Known permanent redirection to " + location)
+            redirect(method, location)
+        }
+    }
+
+    /**
+     * Points the method to the location of its last response, rewriting the Destination header if present.
+     *
+     * @return false if the response has no location to redirect to; [HttpStatus.SC_NOT_FOUND] is then added to
+     * the result as the final status of both the blocking and the asynchronous redirection paths.
+     */
+    private fun prepareRedirection(method: OkHttpMethodBase, result: RedirectionPath): Boolean {
+        var location = method.getResponseHeader("Location")
+        if (location == null) {
+            location = method.getResponseHeader("location")
+        }
+        if (location == null) {
+            Log_OC.d(TAG, "No location to redirect!")
+            result.addStatus(HttpStatus.SC_NOT_FOUND)
+            return false
+        }
+
+        Log_OC.d(TAG, "Location to redirect: " + location)
+        result.addLocation(location)
+        // Release the connection to avoid reach the max number of connections per host
+        // due to it will be set a different url
+        method.releaseConnection()
+        if (PermanentRedirectCache.isPermanentRedirection(method.getStatusCode())) {
+            permanentRedirects.put(method.uri, location)
+        }
+        redirect(method, location)
+        return true
+    }
+
+    /**
+     * Points the method to the location, rewriting the Destination header of MOVE and COPY requests if present.
+     */
+    private fun redirect(method: OkHttpMethodBase, location: String) {
+        method.uri = location
+        // read from the method, not from the client: with enqueued calls the client's last request may be
+        // another one
+        var destination = method.requestHeaders["Destination"]
+
+        if (destination == null) {
+            destination = method.requestHeaders["destination"]
+        }
+
+        if (destination != null) {
+            val suffixIndex = location.lastIndexOf(AccountUtils.WEBDAV_PATH_4_0)
+            val redirectionBase = location.substring(0, suffixIndex)
+            val destinationPath = destination.substring(baseUri.toString().length)
+            val redirectedDestination = redirectionBase + destinationPath
+
+            if (method.requestHeaders["Destination"].isNullOrEmpty()) {
+                method.requestHeaders.put("destination", redirectedDestination)
+            } else {
+                method.requestHeaders.put("Destination", redirectedDestination)
+            }
+        }
+    }
 }
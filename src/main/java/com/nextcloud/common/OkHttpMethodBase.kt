@@ -29,10 +29,14 @@ package com.nextcloud.common
 
 import com.owncloud.android.lib.common.OwnCloudClientManagerFactory
 import com.owncloud.android.lib.common.operations.RemoteOperation
+import okhttp3.Call
+import okhttp3.Callback
 import okhttp3.Headers
 import okhttp3.HttpUrl
+import okhttp3.Protocol
 import okhttp3.Request
 import okhttp3.Response
+import java.io.IOException
 
 /**
  * Common base class for all new OkHttpMethods
@@ -44,6 +48,9 @@ abstract class OkHttpMethodBase(var uri: String,
     var requestHeaders: MutableMap<String, String> = HashMap()
     var requestBuilder: Request.Builder = Request.Builder()
 
+    @Volatile private var call: Call? = null
+    @Volatile private var aborted = false
+
     fun OkHttpMethodBase() {
         requestHeaders.put("http.protocol.single-cookie-header", "true")
     }
@@ -84,7 +91,65 @@ abstract class OkHttpMethodBase(var uri: String,
         return response.header(name)
     }
 
+    /**
+     * Protocol negotiated for the response, e.g. [Protocol.HTTP_2] when the server supports it via ALPN.
+     */
+    fun getProtocol(): Protocol {
+        return response.protocol()
+    }
+
     fun execute(nextcloudClient: NextcloudClient): Int {
+        response = nextcloudClient.newCall(buildRequest(nextcloudClient)).execute()
+
+        if (nextcloudClient.followRedirects) {
+            return nextcloudClient.followRedirection(this).getLastStatus()
+        } else {
+            return response.code()
+        }
+    }
+
+    /**
+     * Sends the request without blocking the calling thread; redirections are followed the same way, so no
+     * thread waits on the network until the listener is called.
+     */
+    fun enqueue(nextcloudClient: NextcloudClient, listener: OnMethodFinishListener) {
+        enqueueRequest(nextcloudClient, object : Callback {
+            override fun onResponse(call: Call, response: Response) {
+                this@OkHttpMethodBase.response = response
+
+                if (nextcloudClient.followRedirects) {
+                    nextcloudClient.followRedirectionAsync(this@OkHttpMethodBase, listener)
+                } else {
+                    listener.onMethodFinish(this@OkHttpMethodBase, response.code())
+                }
+            }
+
+            override fun onFailure(call: Call, e: IOException) {
+                listener.onMethodFailure(this@OkHttpMethodBase, e)
+            }
+        })
+    }
+
+    internal fun enqueueRequest(nextcloudClient: NextcloudClient, callback: Callback) {
+        val newCall = nextcloudClient.client.newCall(buildRequest(nextcloudClient))
+        call = newCall
+        if (aborted) {
+            newCall.cancel()
+        }
+        newCall.enqueue(callback)
+    }
+
+    /**
+     * Cancels the call enqueued by [enqueue], including any redirection still to be followed.
+     */
+    fun abort() {
+        aborted = true
+        call?.cancel()
+    }
+
+    private fun buildRequest(nextcloudClient: NextcloudClient): Request {
+        nextcloudClient.applyPermanentRedirection(this)
+
         val temp = requestBuilder
                 .url(buildQueryParameter())
 
@@ -96,14 +161,6 @@ abstract class OkHttpMethodBase(var uri: String,
             temp.header(RemoteOperation.OCS_API_HEADER, RemoteOperation.OCS_API_HEADER_VALUE)
         }
 
-        val request = temp.build()
-
-        response = nextcloudClient.newCall(request).execute()
-
-        if (nextcloudClient.followRedirects) {
-            return nextcloudClient.followRedirection(this).getLastStatus()
-        } else {
-            return response.code()
-        }
+        return temp.build()
     }
 }
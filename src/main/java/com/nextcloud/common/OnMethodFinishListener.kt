@@ -0,0 +1,45 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.nextcloud.common
+
+import java.io.IOException
+
+/**
+ * Receives the outcome of an [OkHttpMethodBase] enqueued with [OkHttpMethodBase.enqueue].
+ *
+ * Methods are called on OkHttp's dispatcher threads.
+ */
+interface OnMethodFinishListener {
+
+    /**
+     * Called once the response is available, after following redirections if enabled in the client.
+     *
+     * @param status    Status of the last response, as returned by [OkHttpMethodBase.execute].
+     */
+    fun onMethodFinish(method: OkHttpMethodBase, status: Int)
+
+    fun onMethodFailure(method: OkHttpMethodBase, e: IOException)
+}
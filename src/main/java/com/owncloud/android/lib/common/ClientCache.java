@@ -0,0 +1,202 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common;
+
+import android.accounts.Account;
+import android.content.Context;
+
+import com.nextcloud.common.NextcloudClient;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Clients of {@link OwnCloudClientManager} kept by account or session name, bounded in size and idle time.
+ *
+ * Both client generations of a key share one entry, so they are reused and evicted together. Lookups don't
+ * lock; insertions are serialized and evict the clients idle for too long, then the least recently used ones
+ * while the cache is over its size.
+ */
+class ClientCache {
+
+    /**
+     * Source of the current time used for idle times and recency, replaceable in tests.
+     */
+    interface TimeSource {
+        long currentTimeMillis();
+    }
+
+    static final TimeSource SYSTEM_TIME = new TimeSource() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    static class Entry {
+        volatile OwnCloudClient ownCloudClient;
+        volatile NextcloudClient nextcloudClient;
+        volatile long lastAccessTime;
+        // to save the cookies of the clients when they are evicted; null for sessions with unknown username
+        volatile Account savedAccount;
+        volatile Context context;
+
+        boolean isIdleSince(long time) {
+            return lastAccessTime < time;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TimeSource timeSource;
+
+    private volatile int maxSize;
+    private volatile long maxIdleTimeMs;
+
+    ClientCache(int maxSize, long maxIdleTimeMs) {
+        this(maxSize, maxIdleTimeMs, SYSTEM_TIME);
+    }
+
+    ClientCache(int maxSize, long maxIdleTimeMs, TimeSource timeSource) {
+        this.timeSource = timeSource;
+        this.maxSize = maxSize;
+        this.maxIdleTimeMs = maxIdleTimeMs;
+    }
+
+    void setLimits(int maxSize, long maxIdleTimeMs) {
+        this.maxSize = maxSize;
+        this.maxIdleTimeMs = maxIdleTimeMs;
+    }
+
+    long getMaxIdleTimeMs() {
+        return maxIdleTimeMs;
+    }
+
+    /**
+     * @return the entry for the key, or null if there is none or it was idle for too long; in the latter
+     * case it stays in the cache until the next eviction, which releases its clients.
+     */
+    Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = timeSource.currentTimeMillis();
+        if (entry.isIdleSince(now - maxIdleTimeMs)) {
+            return null;
+        }
+        entry.lastAccessTime = now;
+        return entry;
+    }
+
+    /**
+     * Returns the entry for the key, creating it if needed.
+     *
+     * @param evicted   Receives the entries evicted to make room for a new one.
+     */
+    synchronized Entry getOrCreate(String key, List<Entry> evicted) {
+        Entry entry = get(key);
+        if (entry == null) {
+            entry = new Entry();
+            entry.lastAccessTime = timeSource.currentTimeMillis();
+            Entry replaced = entries.put(key, entry);
+            if (replaced != null) {
+                evicted.add(replaced);
+            }
+            evict(evicted);
+        }
+        return entry;
+    }
+
+    /**
+     * Adds an entry taken from another cache, keeping its clients.
+     */
+    synchronized void put(String key, Entry entry, List<Entry> evicted) {
+        entry.lastAccessTime = timeSource.currentTimeMillis();
+        Entry replaced = entries.put(key, entry);
+        if (replaced != null && replaced != entry) {
+            evicted.add(replaced);
+        }
+        evict(evicted);
+    }
+
+    Entry remove(String key) {
+        return entries.remove(key);
+    }
+
+    /**
+     * Removes the entries idle for too long and, if still over size, the least recently used ones.
+     */
+    synchronized void evict(List<Entry> evicted) {
+        long idleLimit = timeSource.currentTimeMillis() - maxIdleTimeMs;
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (entry.isIdleSince(idleLimit)) {
+                iterator.remove();
+                evicted.add(entry);
+            }
+        }
+
+        while (entries.size() > maxSize) {
+            Map.Entry<String, Entry> leastRecentlyUsed = null;
+            for (Map.Entry<String, Entry> candidate : entries.entrySet()) {
+                if (leastRecentlyUsed == null ||
+                        candidate.getValue().lastAccessTime < leastRecentlyUsed.getValue().lastAccessTime) {
+                    leastRecentlyUsed = candidate;
+                }
+            }
+            if (leastRecentlyUsed == null) {
+                break;
+            }
+            if (entries.remove(leastRecentlyUsed.getKey(), leastRecentlyUsed.getValue())) {
+                evicted.add(leastRecentlyUsed.getValue());
+            }
+        }
+    }
+
+    synchronized List<Entry> clear() {
+        List<Entry> removed = new ArrayList<>(entries.values());
+        entries.clear();
+        return removed;
+    }
+
+    boolean hasNextcloudClient() {
+        for (Entry entry : entries.values()) {
+            if (entry.nextcloudClient != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Iterable<Map.Entry<String, Entry>> entries() {
+        return entries.entrySet();
+    }
+}
@@ -28,7 +28,10 @@ package com.owncloud.android.lib.common;
 import android.net.Uri;
 
 import com.owncloud.android.lib.common.accounts.AccountUtils;
+import com.owncloud.android.lib.common.network.HostParamsConnectionManager;
+import com.owncloud.android.lib.common.network.PermanentRedirectCache;
 import com.owncloud.android.lib.common.network.RedirectionPath;
+import com.owncloud.android.lib.common.network.RequestAbortScope;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
@@ -44,6 +47,7 @@ import org.apache.commons.httpclient.HttpVersion;
 import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.cookie.CookiePolicy;
 import org.apache.commons.httpclient.methods.HeadMethod;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.httpclient.params.HttpParams;
 
@@ -62,21 +66,35 @@ public class OwnCloudClient extends HttpClient {
     private static final boolean PARAM_SINGLE_COOKIE_HEADER_VALUE = true;
     private static final String PARAM_PROTOCOL_VERSION = "http.protocol.version";
     
-    private static byte[] sExhaustBuffer = new byte[1024];
+    /**
+     * Not interesting responses longer than this are not read; closing the connection and opening a new one is
+     * cheaper than transferring them.
+     */
+    public static final long DEFAULT_MAX_EXHAUST_LENGTH = 64 * 1024;
+    private static final int EXHAUST_BUFFER_SIZE = 4096;
+
+    private static final ThreadLocal<byte[]> sExhaustBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[EXHAUST_BUFFER_SIZE];
+        }
+    };
     
     private static int sIntanceCounter = 0;
     @Getter @Setter private boolean followRedirects = true;
+    @Getter @Setter private long maxExhaustLength = DEFAULT_MAX_EXHAUST_LENGTH;
     @Getter private OwnCloudCredentials credentials = null;
     private int mInstanceNumber;
     
     @Getter private Uri baseUri;
     @Setter private String userId;
+    private final PermanentRedirectCache permanentRedirects = new PermanentRedirectCache();
 
     /**
      * Constructor
      */
     public OwnCloudClient(Uri baseUri, HttpConnectionManager connectionMgr) {
-        super(connectionMgr);
+        super(new HostParamsConnectionManager(connectionMgr));
         
         if (baseUri == null) {
         	throw new IllegalArgumentException("Parameter 'baseUri' cannot be NULL");
@@ -153,7 +171,7 @@ public class OwnCloudClient extends HttpClient {
             int status = executeMethod(head);
             Log_OC.d(TAG, "HEAD to " + path + " finished with HTTP status " + status +
             		((status != HttpStatus.SC_OK)?"(FAIL)":""));
-            exhaustResponse(head.getResponseBodyAsStream());
+            exhaustResponse(head);
             return (status == HttpStatus.SC_OK);
             
         } finally {
@@ -166,7 +184,9 @@ public class OwnCloudClient extends HttpClient {
      * 
      * Executes the method through the inherited HttpClient.executedMethod(method).
      * 
-     * Sets the socket and connection timeouts only for the method received.
+     * Sets the socket and connection timeouts only for the method received. They are carried by the method
+     * and by a host configuration private to this request, so the client and its connection manager are not
+     * modified and concurrent requests keep their own timeouts.
      * 
      * The timeouts are both in milliseconds; 0 means 'infinite'; 
      * < 0 means 'do not change the default'
@@ -176,22 +196,18 @@ public class OwnCloudClient extends HttpClient {
      * @param connectionTimeout     Timeout to set for connection establishment
      */
     public int executeMethod(HttpMethodBase method, int readTimeout, int connectionTimeout) throws IOException {
+        HostConfiguration hostConfiguration = new HostConfiguration(getHostConfiguration());
 
-        int oldSoTimeout = getParams().getSoTimeout();
-        int oldConnectionTimeout = getHttpConnectionManager().getParams().getConnectionTimeout();
-        try {
-            if (readTimeout >= 0) { 
-                method.getParams().setSoTimeout(readTimeout);   // this should be enough...
-                getParams().setSoTimeout(readTimeout);          // ... but HTTPS needs this
-            }
-            if (connectionTimeout >= 0) {
-                getHttpConnectionManager().getParams().setConnectionTimeout(connectionTimeout);
-            }
-            return executeMethod(method);
-        } finally {
-            getParams().setSoTimeout(oldSoTimeout);
-            getHttpConnectionManager().getParams().setConnectionTimeout(oldConnectionTimeout);
+        if (readTimeout >= 0) {
+            method.getParams().setSoTimeout(readTimeout);
+            // applied by HostParamsConnectionManager to the TLS handshake of new connections
+            hostConfiguration.getParams().setIntParameter(HttpConnectionParams.SO_TIMEOUT, readTimeout);
+        }
+        if (connectionTimeout >= 0) {
+            hostConfiguration.getParams().setIntParameter(HttpConnectionParams.CONNECTION_TIMEOUT,
+                                                          connectionTimeout);
         }
+        return executeMethod(method, hostConfiguration);
     }
 
 
@@ -204,6 +220,16 @@ public class OwnCloudClient extends HttpClient {
      */
     @Override
     public int executeMethod(HttpMethod method) throws IOException {
+        return executeMethod(method, null);
+    }
+
+    /**
+     * @param hostConfiguration     Host configuration for this request, or null to use the client's one.
+     */
+    private int executeMethod(HttpMethod method, HostConfiguration hostConfiguration) throws IOException {
+        // not detached when done: the body is read afterwards, and must stay abortable until the next request
+        // replaces the method in the scope or the scope exits
+        RequestAbortScope.attach(method);
         try {
             // Update User Agent
             HttpParams params = method.getParams();
@@ -215,11 +241,12 @@ public class OwnCloudClient extends HttpClient {
 //	        logCookiesAtRequest(method.getRequestHeaders(), "before");
 //	        logCookiesAtState("before");
             method.setFollowRedirects(false);
+            applyPermanentRedirection(method);
 
-            int status = super.executeMethod(method);
+            int status = super.executeMethod(hostConfiguration, method, null);
 
             if (followRedirects) {
-                status = followRedirection(method).getLastStatus();
+                status = followRedirection(method, hostConfiguration).getLastStatus();
             }
 
 //	        logCookiesAtRequest(method.getRequestHeaders(), "after");
@@ -237,13 +264,19 @@ public class OwnCloudClient extends HttpClient {
 
 
 	public RedirectionPath followRedirection(HttpMethod method) throws IOException {
+        return followRedirection(method, null);
+    }
+
+    private RedirectionPath followRedirection(HttpMethod method, HostConfiguration hostConfiguration)
+        throws IOException {
         int redirectionsCount = 0;
         int status = method.getStatusCode();
         RedirectionPath result = new RedirectionPath(status, MAX_REDIRECTIONS_COUNT);
         while (redirectionsCount < MAX_REDIRECTIONS_COUNT &&
                 (   status == HttpStatus.SC_MOVED_PERMANENTLY || 
                     status == HttpStatus.SC_MOVED_TEMPORARILY ||
-                    status == HttpStatus.SC_TEMPORARY_REDIRECT)
+                    status == HttpStatus.SC_TEMPORARY_REDIRECT ||
+                    status == PermanentRedirectCache.HTTP_PERMANENT_REDIRECT)
                 ) {
             
             Header location = method.getResponseHeader("Location");
@@ -262,23 +295,11 @@ public class OwnCloudClient extends HttpClient {
                 exhaustResponse(method.getResponseBodyAsStream());
                 method.releaseConnection();
 
-                method.setURI(new URI(locationStr, true));
-                Header destination = method.getRequestHeader("Destination");
-                if (destination == null) {
-                	destination = method.getRequestHeader("destination");
-                }
-                if (destination != null) {
-                    int suffixIndex = locationStr.lastIndexOf(AccountUtils.WEBDAV_PATH_4_0);
-                    String redirectionBase = locationStr.substring(0, suffixIndex);
-
-                    String destinationStr = destination.getValue();
-                	String destinationPath = destinationStr.substring(baseUri.toString().length());
-                	String redirectedDestination = redirectionBase + destinationPath;
-                	
-                	destination.setValue(redirectedDestination);
-                    method.setRequestHeader(destination);
+                if (PermanentRedirectCache.isPermanentRedirection(status)) {
+                    permanentRedirects.put(method.getURI().toString(), locationStr);
                 }
-                status = super.executeMethod(method);
+                redirect(method, locationStr);
+                status = super.executeMethod(hostConfiguration, method, null);
                 result.addStatus(status);
                 redirectionsCount++;
                 
@@ -290,6 +311,39 @@ public class OwnCloudClient extends HttpClient {
         return result;
 	}
 
+    /**
+     * Sends the method straight to the location its URI was permanently redirected to, if known.
+     */
+    private void applyPermanentRedirection(HttpMethod method) throws IOException {
+        String location = permanentRedirects.get(method.getURI().toString());
+        if (location != null) {
+            Log_OC.d(TAG + " #" + mInstanceNumber, "Known permanent redirection to " + location);
+            redirect(method, location);
+        }
+    }
+
+    /**
+     * Points the method to the location, rewriting the Destination header of MOVE and COPY requests if present.
+     */
+    private void redirect(HttpMethod method, String locationStr) throws IOException {
+        method.setURI(new URI(locationStr, true));
+        Header destination = method.getRequestHeader("Destination");
+        if (destination == null) {
+        	destination = method.getRequestHeader("destination");
+        }
+        if (destination != null) {
+            int suffixIndex = locationStr.lastIndexOf(AccountUtils.WEBDAV_PATH_4_0);
+            String redirectionBase = locationStr.substring(0, suffixIndex);
+
+            String destinationStr = destination.getValue();
+        	String destinationPath = destinationStr.substring(baseUri.toString().length());
+        	String redirectedDestination = redirectionBase + destinationPath;
+        	
+        	destination.setValue(redirectedDestination);
+            method.setRequestHeader(destination);
+        }
+    }
+
 	/**
      * Exhausts a not interesting HTTP response. Encouraged by HttpClient documentation.
      * 
@@ -298,7 +352,8 @@ public class OwnCloudClient extends HttpClient {
     public void exhaustResponse(InputStream responseBodyAsStream) {
         if (responseBodyAsStream != null) {
             try {
-                while (responseBodyAsStream.read(sExhaustBuffer) >= 0);
+                byte[] buffer = sExhaustBuffer.get();
+                while (responseBodyAsStream.read(buffer) >= 0);
                 responseBodyAsStream.close();
             
             } catch (IOException io) {
@@ -308,6 +363,67 @@ public class OwnCloudClient extends HttpClient {
         }
     }
 
+    /**
+     * Exhausts the not interesting HTTP response of a method that will not be executed again.
+     *
+     * Bodies up to {@link #getMaxExhaustLength()} bytes are read so the connection can be reused; larger ones
+     * are not transferred, the connection is closed instead. Responses without body, as those to HEAD, are left
+     * untouched.
+     *
+     * @param method      Executed HTTP method whose response is not interesting.
+     */
+    public void exhaustResponse(HttpMethod method) {
+        exhaustResponse(method, maxExhaustLength);
+    }
+
+    static void exhaustResponse(HttpMethod method, long maxExhaustLength) {
+        if (method == null) {
+            return;
+        }
+
+        // no body to read; the announced length, if any, is the one of the resource
+        if ("HEAD".equals(method.getName())) {
+            return;
+        }
+
+        try {
+            InputStream responseBodyAsStream = method.getResponseBodyAsStream();
+            if (responseBodyAsStream == null || method.getStatusCode() == HttpStatus.SC_NO_CONTENT ||
+                method.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                return;
+            }
+
+            Header contentLength = method.getResponseHeader("Content-Length");
+            if (contentLength != null) {
+                try {
+                    if (Long.parseLong(contentLength.getValue().trim()) > maxExhaustLength) {
+                        method.abort();
+                        return;
+                    }
+                } catch (NumberFormatException e) {
+                    // unknown length, read up to the limit
+                }
+            }
+
+            byte[] buffer = sExhaustBuffer.get();
+            long remaining = maxExhaustLength;
+            int read;
+            while ((read = responseBodyAsStream.read(buffer)) >= 0) {
+                remaining -= read;
+                if (remaining < 0) {
+                    // longer than announced, or not announced at all
+                    method.abort();
+                    return;
+                }
+            }
+            responseBodyAsStream.close();
+
+        } catch (IOException io) {
+            Log_OC.e(TAG, "Unexpected exception while exhausting not interesting HTTP response;" +
+                " will be IGNORED", io);
+        }
+    }
+
     /**
      * Sets the connection and wait-for-data timeouts to be applied by default to the methods 
      * performed by this client.
@@ -344,6 +460,10 @@ public class OwnCloudClient extends HttpClient {
         if (uri == null) {
         	throw new IllegalArgumentException("URI cannot be NULL");
         }
+        if (!uri.equals(baseUri)) {
+            // redirections learnt for the previous server may not apply anymore
+            permanentRedirects.clear();
+        }
         baseUri = uri;
     }
 
@@ -34,14 +34,15 @@ import android.util.Log;
 
 import com.nextcloud.common.NextcloudClient;
 import com.owncloud.android.lib.common.accounts.AccountUtils;
+import com.owncloud.android.lib.common.accounts.AccountUtils.AccountNotFoundException;
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import org.apache.commons.httpclient.cookie.CookiePolicy;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 
@@ -54,11 +55,48 @@ public class OwnCloudClientManager {
 
     private static final String TAG = OwnCloudClientManager.class.getSimpleName();
 
-    private ConcurrentMap<String, OwnCloudClient> mClientsWithKnownUsername = new ConcurrentHashMap<>();
-    private ConcurrentMap<String, NextcloudClient> clientsNewWithKnownUsername = new ConcurrentHashMap<>();
+    /** Maximum number of accounts, and separately of sessions with unknown username, with cached clients */
+    public static final int DEFAULT_MAX_CACHED_CLIENTS = 10;
+
+    /** Time after which a client not requested again is evicted from the cache */
+    public static final long DEFAULT_MAX_CLIENT_IDLE_TIME_MS = 30 * 60 * 1000;
+
+    private final ClientCache mClientsWithKnownUsername =
+            new ClientCache(DEFAULT_MAX_CACHED_CLIENTS, DEFAULT_MAX_CLIENT_IDLE_TIME_MS);
+
+    private final ClientCache mClientsWithUnknownUsername =
+            new ClientCache(DEFAULT_MAX_CACHED_CLIENTS, DEFAULT_MAX_CLIENT_IDLE_TIME_MS);
+
+    /**
+     * Returns the client of a saved account.
+     *
+     * A cached client is returned after a single lookup, without reading the account from AccountManager;
+     * changes of its credentials or server URL must be pushed with {@link #updateCredentialsFor},
+     * {@link #updateBaseUriFor} or {@link #invalidateClientFor}.
+     */
+    public OwnCloudClient getClientFor(Account savedAccount, Context context) throws AccountNotFoundException,
+            OperationCanceledException, AuthenticatorException, IOException {
+        ClientCache.Entry entry = mClientsWithKnownUsername.get(savedAccount.name);
+        OwnCloudClient client = entry == null ? null : entry.ownCloudClient;
+        if (client != null) {
+            return client;
+        }
+        return getClientFor(new OwnCloudAccount(savedAccount, context), context);
+    }
 
-    private ConcurrentMap<String, OwnCloudClient> mClientsWithUnknownUsername = new ConcurrentHashMap<>();
-    private ConcurrentMap<String, NextcloudClient> clientsNewWithUnknownUsername = new ConcurrentHashMap<>();
+    /**
+     * Returns the {@link NextcloudClient} of a saved account, looked up the same way as in
+     * {@link #getClientFor(Account, Context)}.
+     */
+    public NextcloudClient getNextcloudClientFor(Account savedAccount, Context context)
+            throws AccountNotFoundException, OperationCanceledException, AuthenticatorException, IOException {
+        ClientCache.Entry entry = mClientsWithKnownUsername.get(savedAccount.name);
+        NextcloudClient client = entry == null ? null : entry.nextcloudClient;
+        if (client != null) {
+            return client;
+        }
+        return getNextcloudClientFor(new OwnCloudAccount(savedAccount, context), context);
+    }
 
     @Deprecated
     public OwnCloudClient getClientFor(OwnCloudAccount account, Context context) throws OperationCanceledException,
@@ -71,36 +109,10 @@ public class OwnCloudClientManager {
             throw new IllegalArgumentException("Cannot get an OwnCloudClient for a null account");
         }
 
-        OwnCloudClient client = null;
+        List<ClientCache.Entry> evicted = new ArrayList<>();
+        ClientCache.Entry entry = findEntry(account, evicted);
+        OwnCloudClient client = entry == null ? null : entry.ownCloudClient;
         String accountName = account.getName();
-        String sessionName = account.getCredentials() == null ? "" :
-                AccountUtils.buildAccountName(account.getBaseUri(), account.getCredentials().getAuthToken());
-
-        if (accountName != null) {
-            client = mClientsWithKnownUsername.get(accountName);
-        }
-        boolean reusingKnown = false;    // just for logs
-        if (client == null) {
-            if (accountName != null) {
-                client = mClientsWithUnknownUsername.remove(sessionName);
-                if (client != null) {
-                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                        Log_OC.v(TAG, "reusing client for session " + sessionName);
-                    }
-                    mClientsWithKnownUsername.put(accountName, client);
-                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                        Log_OC.v(TAG, "moved client to account " + accountName);
-                    }
-                }
-            } else {
-                client = mClientsWithUnknownUsername.get(sessionName);
-            }
-        } else {
-            if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                Log_OC.v(TAG, "reusing client for account " + accountName);
-            }
-            reusingKnown = true;
-        }
 
         if (client == null) {
             // no client to reuse - create a new one
@@ -124,25 +136,19 @@ public class OwnCloudClientManager {
                 client.setUserId(userId);
             }
 
-            if (accountName != null) {
-                mClientsWithKnownUsername.put(accountName, client);
-                if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                    Log_OC.v(TAG, "new client for account " + accountName);
-                }
-
-            } else {
-                mClientsWithUnknownUsername.put(sessionName, client);
-                if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                    Log_OC.v(TAG, "new client for session " + sessionName);
-                }
+            if (entry == null) {
+                entry = createEntry(account, evicted);
             }
+            entry.ownCloudClient = client;
         } else {
-            if (!reusingKnown && Log.isLoggable(TAG, Log.VERBOSE)) {
-                Log_OC.v(TAG, "reusing client for session " + sessionName);
-            }
             keepCredentialsUpdated(account, client);
             keepUriUpdated(account, client);
         }
+        if (entry.savedAccount == null && account.getSavedAccount() != null) {
+            entry.savedAccount = account.getSavedAccount();
+            entry.context = context.getApplicationContext();
+        }
+        releaseEvicted(evicted);
 
         if (Log.isLoggable(TAG, Log.DEBUG)) {
             Log_OC.d(TAG, "getClientFor finishing ");
@@ -161,36 +167,9 @@ public class OwnCloudClientManager {
             throw new IllegalArgumentException("Cannot get an NextcloudClient for a null account");
         }
 
-        NextcloudClient client = null;
-        String accountName = account.getName();
-        String sessionName = account.getCredentials() == null ? "" :
-                AccountUtils.buildAccountName(account.getBaseUri(), account.getCredentials().getAuthToken());
-
-        if (accountName != null) {
-            client = clientsNewWithKnownUsername.get(accountName);
-        }
-        boolean reusingKnown = false;    // just for logs
-        if (client == null) {
-            if (accountName != null) {
-                client = clientsNewWithUnknownUsername.remove(sessionName);
-                if (client != null) {
-                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                        Log_OC.v(TAG, "reusing client for session " + sessionName);
-                    }
-                    clientsNewWithKnownUsername.put(accountName, client);
-                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                        Log_OC.v(TAG, "moved client to account " + accountName);
-                    }
-                }
-            } else {
-                client = clientsNewWithUnknownUsername.get(sessionName);
-            }
-        } else {
-            if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                Log_OC.v(TAG, "reusing client for account " + accountName);
-            }
-            reusingKnown = true;
-        }
+        List<ClientCache.Entry> evicted = new ArrayList<>();
+        ClientCache.Entry entry = findEntry(account, evicted);
+        NextcloudClient client = entry == null ? null : entry.nextcloudClient;
 
         if (client == null) {
             // no client to reuse - create a new one
@@ -215,26 +194,16 @@ public class OwnCloudClientManager {
                 client.setUserId(userId);
             }
 
-            if (accountName != null) {
-                clientsNewWithKnownUsername.put(accountName, client);
-                if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                    Log_OC.v(TAG, "new client for account " + accountName);
-                }
-
-            } else {
-                clientsNewWithUnknownUsername.put(sessionName, client);
-                if (Log.isLoggable(TAG, Log.VERBOSE)) {
-                    Log_OC.v(TAG, "new client for session " + sessionName);
-                }
+            if (entry == null) {
+                entry = createEntry(account, evicted);
             }
+            entry.nextcloudClient = client;
         } else {
-            if (!reusingKnown && Log.isLoggable(TAG, Log.VERBOSE)) {
-                Log_OC.v(TAG, "reusing client for session " + sessionName);
-            }
             // TODO v2
             // keepCredentialsUpdated(account, client);
             // keepUriUpdated(account, client);
         }
+        releaseEvicted(evicted);
 
         if (Log.isLoggable(TAG, Log.DEBUG)) {
             Log_OC.d(TAG, "getClientFor finishing ");
@@ -243,6 +212,64 @@ public class OwnCloudClientManager {
         return client;
     }
 
+    /**
+     * Finds the cached clients of the account, moving them from its session to the account when its username
+     * became known.
+     */
+    private ClientCache.Entry findEntry(OwnCloudAccount account, List<ClientCache.Entry> evicted) {
+        ClientCache.Entry entry = null;
+        String accountName = account.getName();
+
+        if (accountName != null) {
+            entry = mClientsWithKnownUsername.get(accountName);
+        }
+        if (entry == null) {
+            String sessionName = getSessionName(account);
+            if (accountName != null) {
+                entry = mClientsWithUnknownUsername.remove(sessionName);
+                if (entry != null) {
+                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                        Log_OC.v(TAG, "reusing client for session " + sessionName);
+                    }
+                    mClientsWithKnownUsername.put(accountName, entry, evicted);
+                    if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                        Log_OC.v(TAG, "moved client to account " + accountName);
+                    }
+                }
+            } else {
+                entry = mClientsWithUnknownUsername.get(sessionName);
+                if (entry != null && Log.isLoggable(TAG, Log.VERBOSE)) {
+                    Log_OC.v(TAG, "reusing client for session " + sessionName);
+                }
+            }
+        } else {
+            if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                Log_OC.v(TAG, "reusing client for account " + accountName);
+            }
+        }
+        return entry;
+    }
+
+    private ClientCache.Entry createEntry(OwnCloudAccount account, List<ClientCache.Entry> evicted) {
+        String accountName = account.getName();
+        if (accountName != null) {
+            if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                Log_OC.v(TAG, "new client for account " + accountName);
+            }
+            return mClientsWithKnownUsername.getOrCreate(accountName, evicted);
+        } else {
+            String sessionName = getSessionName(account);
+            if (Log.isLoggable(TAG, Log.VERBOSE)) {
+                Log_OC.v(TAG, "new client for session " + sessionName);
+            }
+            return mClientsWithUnknownUsername.getOrCreate(sessionName, evicted);
+        }
+    }
+
+    private String getSessionName(OwnCloudAccount account) {
+        return account.getCredentials() == null ? "" :
+                AccountUtils.buildAccountName(account.getBaseUri(), account.getCredentials().getAuthToken());
+    }
 
     public OwnCloudClient removeClientFor(OwnCloudAccount account) {
 
@@ -254,15 +281,17 @@ public class OwnCloudClientManager {
             return null;
         }
 
-        OwnCloudClient client;
+        OwnCloudClient client = null;
         String accountName = account.getName();
+        List<ClientCache.Entry> removed = new ArrayList<>();
         if (accountName != null) {
-            client = mClientsWithKnownUsername.remove(accountName);
-            if (client != null) {
+            ClientCache.Entry entry = mClientsWithKnownUsername.remove(accountName);
+            if (entry != null) {
                 if (Log.isLoggable(TAG, Log.VERBOSE)) {
                     Log_OC.v(TAG, "Removed client for account " + accountName);
                 }
-                return client;
+                removed.add(entry);
+                client = entry.ownCloudClient;
             } else {
                 if (Log.isLoggable(TAG, Log.VERBOSE)) {
                     Log_OC.v(TAG, "No client tracked for  account " + accountName);
@@ -270,13 +299,124 @@ public class OwnCloudClientManager {
             }
         }
 
-        mClientsWithUnknownUsername.clear();
+        ClientCache.Entry sessionEntry = mClientsWithUnknownUsername.remove(getSessionName(account));
+        if (sessionEntry != null) {
+            removed.add(sessionEntry);
+            if (client == null) {
+                client = sessionEntry.ownCloudClient;
+            }
+        }
+        release(removed);
 
         if (Log.isLoggable(TAG, Log.DEBUG)) {
             Log_OC.d(TAG, "removeClientFor finishing ");
         }
-        return null;
+        return client;
+
+    }
+
+    /**
+     * Sets new credentials in the cached clients of the account, if any.
+     */
+    public void updateCredentialsFor(String accountName, OwnCloudCredentials credentials) {
+        ClientCache.Entry entry = mClientsWithKnownUsername.get(accountName);
+        if (entry == null) {
+            return;
+        }
+        if (entry.ownCloudClient != null) {
+            entry.ownCloudClient.setCredentials(credentials);
+        }
+        if (entry.nextcloudClient != null) {
+            entry.nextcloudClient.setCredentials(credentials.toOkHttpCredentials());
+        }
+    }
+
+    /**
+     * Sets a new server URL in the cached clients of the account, if any.
+     */
+    public void updateBaseUriFor(String accountName, Uri baseUri) {
+        ClientCache.Entry entry = mClientsWithKnownUsername.get(accountName);
+        if (entry == null) {
+            return;
+        }
+        if (entry.ownCloudClient != null) {
+            entry.ownCloudClient.setBaseUri(baseUri);
+        }
+        if (entry.nextcloudClient != null) {
+            entry.nextcloudClient.setBaseUri(baseUri);
+        }
+    }
+
+    /**
+     * Drops the cached clients of the account, so the next request builds them again from the data saved in
+     * AccountManager.
+     */
+    public void invalidateClientFor(String accountName) {
+        ClientCache.Entry entry = mClientsWithKnownUsername.remove(accountName);
+        if (entry != null) {
+            List<ClientCache.Entry> removed = new ArrayList<>();
+            removed.add(entry);
+            release(removed);
+        }
+    }
+
+    /**
+     * Sets how many clients are cached and for how long they are kept without being requested.
+     *
+     * @param maxClients        Maximum number of accounts, and separately of sessions with unknown username,
+     *                          with cached clients.
+     * @param maxIdleTimeMs     Time after which a client not requested again is evicted.
+     */
+    public void setCacheLimits(int maxClients, long maxIdleTimeMs) {
+        mClientsWithKnownUsername.setLimits(maxClients, maxIdleTimeMs);
+        mClientsWithUnknownUsername.setLimits(maxClients, maxIdleTimeMs);
+        evictIdleClients();
+    }
+
+    /**
+     * Evicts the clients over the limits of the cache; the cache also does it whenever a client is created.
+     */
+    public void evictIdleClients() {
+        List<ClientCache.Entry> evicted = new ArrayList<>();
+        mClientsWithKnownUsername.evict(evicted);
+        mClientsWithUnknownUsername.evict(evicted);
+        releaseEvicted(evicted);
+    }
+
+    /**
+     * Saves the cookies of clients evicted from the cache, as {@link #saveAllClients} does for the cached ones,
+     * so sessions started after the last save survive the eviction; then releases their connections.
+     */
+    private void releaseEvicted(List<ClientCache.Entry> evicted) {
+        for (ClientCache.Entry entry : evicted) {
+            OwnCloudClient ownCloudClient = entry.ownCloudClient;
+            if (ownCloudClient != null && entry.savedAccount != null && entry.context != null) {
+                AccountUtils.saveClient(ownCloudClient, entry.savedAccount, entry.context);
+            }
+        }
+        release(evicted);
+    }
 
+    /**
+     * Releases the connections held for clients removed from the cache.
+     *
+     * Connection pools are shared by all the clients of a generation, so they are not shut down; the legacy
+     * pool closes the connections idle longer than clients are cached, and the OkHttp pool closes its idle
+     * connections once no cached client uses it.
+     */
+    private void release(List<ClientCache.Entry> removed) {
+        for (ClientCache.Entry entry : removed) {
+            OwnCloudClient ownCloudClient = entry.ownCloudClient;
+            if (ownCloudClient != null) {
+                ownCloudClient.getHttpConnectionManager()
+                        .closeIdleConnections(mClientsWithKnownUsername.getMaxIdleTimeMs());
+            }
+            NextcloudClient nextcloudClient = entry.nextcloudClient;
+            if (nextcloudClient != null && !mClientsWithKnownUsername.hasNextcloudClient() &&
+                    !mClientsWithUnknownUsername.hasNextcloudClient()) {
+                nextcloudClient.getClient().connectionPool().evictAll();
+            }
+        }
     }
 
 
@@ -285,16 +425,11 @@ public class OwnCloudClientManager {
             Log_OC.d(TAG, "Saving sessions... ");
         }
 
-        Iterator<String> accountNames = mClientsWithKnownUsername.keySet().iterator();
-        String accountName;
-        Account account;
-        while (accountNames.hasNext()) {
-            accountName = accountNames.next();
-            account = new Account(accountName, accountType);
-            AccountUtils.saveClient(
-                    mClientsWithKnownUsername.get(accountName),
-                    account,
-                    context);
+        for (Map.Entry<String, ClientCache.Entry> cached : mClientsWithKnownUsername.entries()) {
+            OwnCloudClient client = cached.getValue().ownCloudClient;
+            if (client != null) {
+                AccountUtils.saveClient(client, new Account(cached.getKey(), accountType), context);
+            }
         }
 
         if (Log.isLoggable(TAG, Log.DEBUG)) {
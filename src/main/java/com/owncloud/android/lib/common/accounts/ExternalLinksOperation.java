@@ -142,7 +142,7 @@ public class ExternalLinksOperation extends RemoteOperation {
 
                 } else {
                     result = new RemoteOperationResult(false, status, get.getResponseHeaders());
-                    String response = get.getResponseBodyAsString();
+                    String response = RemoteOperationResult.getResponseBodyAsString(get);
                     Log_OC.e(TAG, "Failed response while getting external links ");
                     if (response != null) {
                         Log_OC.e(TAG, "*** status code: " + status + " ; response message: " + response);
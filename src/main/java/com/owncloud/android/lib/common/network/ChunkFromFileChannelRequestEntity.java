@@ -33,9 +33,6 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
 
 
 /**
@@ -49,9 +46,8 @@ public class ChunkFromFileChannelRequestEntity implements RequestEntity, Progres
     private final long length;
     private final File mFile;
     private long mOffset;
-    private long mTransferred;
-    private final Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<>();
-    private ByteBuffer mBuffer = ByteBuffer.allocate(4096);
+    private final ProgressDispatcher mProgressDispatcher = new ProgressDispatcher();
+    private ByteBuffer mBuffer = null;
 
     public ChunkFromFileChannelRequestEntity(final FileChannel channel, final String contentType, long offset, 
                                              long chunkSize, final File file) {
@@ -67,7 +63,6 @@ public class ChunkFromFileChannelRequestEntity implements RequestEntity, Progres
         length = chunkSize;
         mFile = file;
         mOffset = offset;
-        mTransferred = offset;
     }
     
     public long getContentLength() {
@@ -88,57 +83,61 @@ public class ChunkFromFileChannelRequestEntity implements RequestEntity, Progres
     
     @Override
     public void addDataTransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.add(listener);
-        }
+        mProgressDispatcher.addListener(listener);
     }
     
     @Override
     public void addDataTransferProgressListeners(Collection<OnDatatransferProgressListener> listeners) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.addAll(listeners);
-        }
+        mProgressDispatcher.addListeners(listeners);
     }
     
     @Override
     public void removeDataTransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (mDataTransferListeners) {
-            mDataTransferListeners.remove(listener);
-        }
+        mProgressDispatcher.removeListener(listener);
     }
 
+    /**
+     * Writes exactly {@link #getContentLength()} bytes of the file, starting at the chunk offset.
+     *
+     * The stream handed by the HTTP library does not expose the socket channel, so
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} would only copy through an
+     * intermediate buffer of its own; a single big heap buffer, reused on repetitions of the request, is used instead.
+     */
     public void writeRequest(final OutputStream out) throws IOException {
         int readCount;
-        Iterator<OnDatatransferProgressListener> progressListenerIterator;
+        String fileName = mFile.getAbsolutePath();
 
         try {
-            mChannel.position(mOffset);
+            if (mBuffer == null) {
+                mBuffer = ByteBuffer.allocate(FileRequestEntity.BUFFER_SIZE);
+            }
             long size = mFile.length();
             if (size == 0) {
                 size = -1;
             }
-            long maxCount = Math.min(mOffset + length - 1, mChannel.size());
-            while (mChannel.position() < maxCount) {
-                readCount = mChannel.read(mBuffer);
+            long position = mOffset;
+            long remaining = getContentLength();
+            long transferred = mOffset;
+
+            while (remaining > 0) {
+                mBuffer.clear();
+                mBuffer.limit((int) Math.min(mBuffer.capacity(), remaining));
+                readCount = mChannel.read(mBuffer, position);
+                if (readCount < 0) {
+                    throw new IOException("Unexpected end of file at " + position);
+                }
                 try {
                     out.write(mBuffer.array(), 0, readCount);
                 } catch (IOException io) {
                     // work-around try catch to filter exception in writing
                     throw new FileRequestEntity.WriteException(io);
                 }
-                mBuffer.clear();
-                if (mTransferred < maxCount) {  // condition to avoid accumulate progress for repeated chunks
-                    mTransferred += readCount;
-                }
-                synchronized (mDataTransferListeners) {
-                    progressListenerIterator = mDataTransferListeners.iterator();
-
-                    while (progressListenerIterator.hasNext()) {
-                        progressListenerIterator.next().onTransferProgress(readCount, mTransferred, size, 
-                                                                           mFile.getAbsolutePath());
-                    }
-                }
+                position += readCount;
+                remaining -= readCount;
+                transferred += readCount;
+                mProgressDispatcher.onProgress(readCount, transferred, size, fileName);
             }
+            mProgressDispatcher.flush(transferred, size, fileName);
 
         } catch (IOException io) {
             // any read problem will be handled as if the file is not there
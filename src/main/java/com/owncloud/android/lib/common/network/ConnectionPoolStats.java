@@ -0,0 +1,72 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import lombok.Getter;
+
+/**
+ * Snapshot of the state of the connection pool shared by all OwnCloudClients.
+ *
+ * Wait times cover the whole acquisition of a connection from the pool, so they stay close to zero unless
+ * requests queue up because all connections are leased.
+ */
+@Getter
+public class ConnectionPoolStats {
+    /** connections currently leased by a request */
+    private final int leasedConnections;
+    /** open connections waiting in the pool to be reused */
+    private final int idleConnections;
+    /** requests currently waiting for a connection */
+    private final int pendingRequests;
+    /** connections handed out since the pool was created */
+    private final long totalRequests;
+    /** requests that gave up waiting for a connection */
+    private final long timedOutRequests;
+    private final long totalWaitTimeMs;
+    private final long maxWaitTimeMs;
+
+    ConnectionPoolStats(int leasedConnections, int idleConnections, int pendingRequests, long totalRequests,
+                        long timedOutRequests, long totalWaitTimeMs, long maxWaitTimeMs) {
+        this.leasedConnections = leasedConnections;
+        this.idleConnections = idleConnections;
+        this.pendingRequests = pendingRequests;
+        this.totalRequests = totalRequests;
+        this.timedOutRequests = timedOutRequests;
+        this.totalWaitTimeMs = totalWaitTimeMs;
+        this.maxWaitTimeMs = maxWaitTimeMs;
+    }
+
+    public long getAverageWaitTimeMs() {
+        return totalRequests == 0 ? 0 : totalWaitTimeMs / totalRequests;
+    }
+
+    @Override
+    public String toString() {
+        return "leased=" + leasedConnections + " idle=" + idleConnections + " pending=" + pendingRequests +
+            " requests=" + totalRequests + " timeouts=" + timedOutRequests + " avgWait=" + getAverageWaitTimeMs() +
+            "ms maxWait=" + maxWaitTimeMs + "ms";
+    }
+}
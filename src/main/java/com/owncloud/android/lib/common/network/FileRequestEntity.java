@@ -35,9 +35,6 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
 
 
 
@@ -47,9 +44,12 @@ import java.util.Set;
  */
 public class FileRequestEntity implements RequestEntity, ProgressiveDataTransfer {
 
+    /** Size of the buffer used to copy the file to the request; bigger buffers mean less system calls */
+    static final int BUFFER_SIZE = 65536;
+
     private final File file;
     private final String contentType;
-    private final Set<OnDatatransferProgressListener> dataTransferListeners = new HashSet<>();
+    private final ProgressDispatcher progressDispatcher = new ProgressDispatcher();
 
     public FileRequestEntity(final File file, final String contentType) {
         super();
@@ -77,34 +77,28 @@ public class FileRequestEntity implements RequestEntity, ProgressiveDataTransfer
 
     @Override
     public void addDataTransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (dataTransferListeners) {
-            dataTransferListeners.add(listener);
-        }
+        progressDispatcher.addListener(listener);
     }
     
     @Override
     public void addDataTransferProgressListeners(Collection<OnDatatransferProgressListener> listeners) {
-        synchronized (dataTransferListeners) {
-            dataTransferListeners.addAll(listeners);
-        }
+        progressDispatcher.addListeners(listeners);
     }
     
     @Override
     public void removeDataTransferProgressListener(OnDatatransferProgressListener listener) {
-        synchronized (dataTransferListeners) {
-            dataTransferListeners.remove(listener);
-        }
+        progressDispatcher.removeListener(listener);
     }
     
     
     @Override
     public void writeRequest(final OutputStream out) throws IOException {
-        ByteBuffer tmp = ByteBuffer.allocate(4096);
+        ByteBuffer tmp = ByteBuffer.allocate(BUFFER_SIZE);
         int readResult;
 
         RandomAccessFile raf = new RandomAccessFile(file, "r");
         FileChannel channel = raf.getChannel();
-        Iterator<OnDatatransferProgressListener> it;
+        String fileName = file.getAbsolutePath();
         long transferred = 0;
         long size = file.length();
         if (size == 0) size = -1;
@@ -118,13 +112,9 @@ public class FileRequestEntity implements RequestEntity, ProgressiveDataTransfer
                 }
                 tmp.clear();
                 transferred += readResult;
-                synchronized (dataTransferListeners) {
-                    it = dataTransferListeners.iterator();
-                    while (it.hasNext()) {
-                        it.next().onTransferProgress(readResult, transferred, size, file.getAbsolutePath());
-                    }
-                }
+                progressDispatcher.onProgress(readResult, transferred, size, fileName);
             }
+            progressDispatcher.flush(transferred, size, fileName);
 
         } catch (IOException io) {
             // any read problem will be handled as if the file is not there
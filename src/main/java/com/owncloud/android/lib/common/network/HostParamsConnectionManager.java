@@ -0,0 +1,114 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpConnectionManager;
+import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.params.HostParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.params.HttpConnectionParams;
+
+/**
+ * Connection manager applying the timeouts set in the params of a request's {@link HostConfiguration} to the
+ * connection leased for that request.
+ *
+ * HttpClient only reads connection and socket timeouts for new connections from the connection manager params,
+ * which are shared by every client using the manager. Per request values are set on the leased connection's own
+ * params instead, which are exclusive to the request until the connection is released; values left by an earlier
+ * lease are cleared so the defaults apply again.
+ */
+public class HostParamsConnectionManager implements HttpConnectionManager {
+
+    private static final String[] TIMEOUT_PARAMS = {
+        HttpConnectionParams.CONNECTION_TIMEOUT,
+        HttpConnectionParams.SO_TIMEOUT
+    };
+
+    private final HttpConnectionManager connectionManager;
+
+    public HostParamsConnectionManager(HttpConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public HttpConnection getConnection(HostConfiguration hostConfiguration) {
+        return applyTimeouts(connectionManager.getConnection(hostConfiguration), hostConfiguration);
+    }
+
+    /**
+     * @deprecated use {@link #getConnectionWithTimeout(HostConfiguration, long)}
+     */
+    @Deprecated
+    @Override
+    public HttpConnection getConnection(HostConfiguration hostConfiguration, long timeout) throws HttpException {
+        return applyTimeouts(connectionManager.getConnection(hostConfiguration, timeout), hostConfiguration);
+    }
+
+    @Override
+    public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout)
+        throws ConnectionPoolTimeoutException {
+        return applyTimeouts(connectionManager.getConnectionWithTimeout(hostConfiguration, timeout),
+                             hostConfiguration);
+    }
+
+    @Override
+    public void releaseConnection(HttpConnection connection) {
+        connectionManager.releaseConnection(connection);
+    }
+
+    @Override
+    public void closeIdleConnections(long idleTimeout) {
+        connectionManager.closeIdleConnections(idleTimeout);
+    }
+
+    @Override
+    public HttpConnectionManagerParams getParams() {
+        return connectionManager.getParams();
+    }
+
+    @Override
+    public void setParams(HttpConnectionManagerParams params) {
+        connectionManager.setParams(params);
+    }
+
+    private static HttpConnection applyTimeouts(HttpConnection connection, HostConfiguration hostConfiguration) {
+        if (connection == null || hostConfiguration == null) {
+            return connection;
+        }
+
+        HostParams hostParams = hostConfiguration.getParams();
+        HttpConnectionParams connectionParams = connection.getParams();
+        for (String name : TIMEOUT_PARAMS) {
+            // a null value falls back to the connection manager defaults
+            connectionParams.setParameter(name,
+                                          hostParams.isParameterSetLocally(name) ? hostParams.getParameter(name) : null);
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,100 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.commons.httpclient.ConnectionPoolTimeoutException;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Connection manager counting leased connections and how long requests wait for a connection of the pool.
+ *
+ * The parent class can only tell how many connections exist, leased or not, so leases are tracked here.
+ */
+class InstrumentedConnectionManager extends MultiThreadedHttpConnectionManager {
+
+    private final AtomicInteger leasedConnections = new AtomicInteger();
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private final AtomicLong totalRequests = new AtomicLong();
+    private final AtomicLong timedOutRequests = new AtomicLong();
+    private final AtomicLong totalWaitTimeMs = new AtomicLong();
+    private final AtomicLong maxWaitTimeMs = new AtomicLong();
+
+    /**
+     * All other ways of getting a connection end up here.
+     */
+    @Override
+    public HttpConnection getConnectionWithTimeout(HostConfiguration hostConfiguration, long timeout)
+        throws ConnectionPoolTimeoutException {
+        long start = System.currentTimeMillis();
+        pendingRequests.incrementAndGet();
+        try {
+            HttpConnection connection = super.getConnectionWithTimeout(hostConfiguration, timeout);
+            leasedConnections.incrementAndGet();
+            recordWait(System.currentTimeMillis() - start);
+            return connection;
+
+        } catch (ConnectionPoolTimeoutException e) {
+            timedOutRequests.incrementAndGet();
+            throw e;
+
+        } finally {
+            pendingRequests.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void releaseConnection(HttpConnection connection) {
+        super.releaseConnection(connection);
+        leasedConnections.decrementAndGet();
+    }
+
+    ConnectionPoolStats getStats() {
+        int inPool = getConnectionsInPool();
+        int leased = leasedConnections.get();
+        return new ConnectionPoolStats(leased,
+                                       Math.max(0, inPool - leased),
+                                       pendingRequests.get(),
+                                       totalRequests.get(),
+                                       timedOutRequests.get(),
+                                       totalWaitTimeMs.get(),
+                                       maxWaitTimeMs.get());
+    }
+
+    private void recordWait(long waitTimeMs) {
+        totalRequests.incrementAndGet();
+        totalWaitTimeMs.addAndGet(waitTimeMs);
+
+        long max = maxWaitTimeMs.get();
+        while (waitTimeMs > max && !maxWaitTimeMs.compareAndSet(max, waitTimeMs)) {
+            max = maxWaitTimeMs.get();
+        }
+    }
+}
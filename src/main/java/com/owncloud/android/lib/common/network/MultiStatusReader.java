@@ -0,0 +1,267 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.Status;
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DefaultDavProperty;
+import org.apache.jackrabbit.webdav.xml.DomUtil;
+import org.apache.jackrabbit.webdav.xml.Namespace;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Pull based reader for WebDAV multistatus bodies.
+ *
+ * Reads one {@link MultiStatusResponse} at a time straight from the response stream, so a listing never needs
+ * the full DOM of the body in memory. Property values are built the same way as jackrabbit's
+ * {@link DefaultDavProperty#createFromXml(Element)}: null for empty elements, a String for text content, an
+ * {@link Element} for a single child element and a list of elements otherwise. Responses can therefore be fed
+ * to {@link WebdavEntry} unchanged.
+ */
+public class MultiStatusReader implements Closeable {
+
+    private static final String DAV_NAMESPACE = "DAV:";
+
+    private final InputStream inputStream;
+    private final XmlPullParser parser;
+    private Document document;
+
+    public MultiStatusReader(InputStream inputStream) throws XmlPullParserException {
+        this.inputStream = inputStream;
+
+        XmlPullParserFactory factory = XmlPullParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        parser = factory.newPullParser();
+        parser.setInput(inputStream, null);
+    }
+
+    /**
+     * @return next response of the multistatus body, or null when the body is exhausted
+     */
+    public MultiStatusResponse next() throws IOException, XmlPullParserException {
+        int eventType = parser.getEventType();
+        while (eventType != XmlPullParser.END_DOCUMENT) {
+            eventType = parser.next();
+            if (eventType == XmlPullParser.START_TAG && isDavElement(DavConstants.XML_RESPONSE)) {
+                return readResponse();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (inputStream != null) {
+            inputStream.close();
+        }
+    }
+
+    private MultiStatusResponse readResponse() throws IOException, XmlPullParserException {
+        String href = null;
+        String description = null;
+        Status responseStatus = null;
+        List<PropStat> propStats = new ArrayList<>();
+
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isDavElement(DavConstants.XML_HREF)) {
+                href = parser.nextText().trim();
+            } else if (isDavElement(DavConstants.XML_PROPSTAT)) {
+                propStats.add(readPropStat());
+            } else if (isDavElement(DavConstants.XML_STATUS)) {
+                responseStatus = Status.parse(parser.nextText().trim());
+            } else if (isDavElement(DavConstants.XML_RESPONSEDESCRIPTION)) {
+                description = parser.nextText();
+            } else {
+                skip();
+            }
+        }
+
+        if (propStats.isEmpty() && responseStatus != null) {
+            return new MultiStatusResponse(href, responseStatus, description);
+        }
+
+        MultiStatusResponse response = new MultiStatusResponse(href, description);
+        for (PropStat propStat : propStats) {
+            for (DefaultDavProperty<?> property : propStat.properties) {
+                response.add(property, propStat.status);
+            }
+        }
+        return response;
+    }
+
+    private PropStat readPropStat() throws IOException, XmlPullParserException {
+        PropStat propStat = new PropStat();
+
+        int depth = parser.getDepth();
+        while (nextChild(depth)) {
+            if (isDavElement(DavConstants.XML_PROP)) {
+                int propDepth = parser.getDepth();
+                while (nextChild(propDepth)) {
+                    propStat.properties.add(readProperty());
+                }
+            } else if (isDavElement(DavConstants.XML_STATUS)) {
+                propStat.status = Status.parse(parser.nextText().trim()).getStatusCode();
+            } else {
+                skip();
+            }
+        }
+        return propStat;
+    }
+
+    private DefaultDavProperty<?> readProperty() throws IOException, XmlPullParserException {
+        DavPropertyName name = DavPropertyName.create(parser.getName(),
+                                                      Namespace.getNamespace(parser.getPrefix() == null ? "" : parser.getPrefix(),
+                                                                             parser.getNamespace()));
+        List<Element> elements = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+
+        int depth = parser.getDepth();
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_TAG || parser.getDepth() != depth) {
+            if (eventType == XmlPullParser.START_TAG) {
+                elements.add(readElement());
+            } else if (eventType == XmlPullParser.TEXT || eventType == XmlPullParser.CDSECT) {
+                text.append(parser.getText());
+            } else if (eventType == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of multistatus body", parser, null);
+            }
+        }
+
+        Object value;
+        if (elements.isEmpty()) {
+            value = text.toString().trim().length() == 0 ? null : text.toString();
+        } else if (elements.size() == 1) {
+            value = elements.get(0);
+        } else {
+            value = elements;
+        }
+        return new DefaultDavProperty<>(name, value);
+    }
+
+    /**
+     * Builds a detached DOM element for the current start tag and its content. Only used for structured
+     * property values, which are small.
+     */
+    private Element readElement() throws IOException, XmlPullParserException {
+        Element element = getDocument().createElementNS(parser.getNamespace(), qualifiedName(parser.getPrefix(),
+                                                                                             parser.getName()));
+        for (int i = 0; i < parser.getAttributeCount(); i++) {
+            String namespace = parser.getAttributeNamespace(i);
+            element.setAttributeNS(namespace.length() == 0 ? null : namespace,
+                                   qualifiedName(parser.getAttributePrefix(i), parser.getAttributeName(i)),
+                                   parser.getAttributeValue(i));
+        }
+
+        int depth = parser.getDepth();
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_TAG || parser.getDepth() != depth) {
+            if (eventType == XmlPullParser.START_TAG) {
+                element.appendChild(readElement());
+            } else if (eventType == XmlPullParser.TEXT || eventType == XmlPullParser.CDSECT) {
+                element.appendChild(getDocument().createTextNode(parser.getText()));
+            } else if (eventType == XmlPullParser.END_DOCUMENT) {
+                throw new XmlPullParserException("Unexpected end of multistatus body", parser, null);
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Advances to the next child start tag of the element at the given depth.
+     *
+     * @return false once the end tag of that element has been reached
+     */
+    private boolean nextChild(int depth) throws IOException, XmlPullParserException {
+        int eventType;
+        while ((eventType = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (eventType == XmlPullParser.START_TAG) {
+                return true;
+            }
+            if (eventType == XmlPullParser.END_TAG && parser.getDepth() == depth) {
+                return false;
+            }
+        }
+        throw new XmlPullParserException("Unexpected end of multistatus body", parser, null);
+    }
+
+    private void skip() throws IOException, XmlPullParserException {
+        int depth = 1;
+        while (depth != 0) {
+            switch (parser.next()) {
+                case XmlPullParser.START_TAG:
+                    depth++;
+                    break;
+                case XmlPullParser.END_TAG:
+                    depth--;
+                    break;
+                case XmlPullParser.END_DOCUMENT:
+                    throw new XmlPullParserException("Unexpected end of multistatus body", parser, null);
+                default:
+                    break;
+            }
+        }
+    }
+
+    private boolean isDavElement(String name) {
+        return DAV_NAMESPACE.equals(parser.getNamespace()) && name.equals(parser.getName());
+    }
+
+    private Document getDocument() throws XmlPullParserException {
+        if (document == null) {
+            try {
+                document = DomUtil.createDocument();
+            } catch (ParserConfigurationException e) {
+                throw new XmlPullParserException("Could not create DOM document: " + e.getMessage());
+            }
+        }
+        return document;
+    }
+
+    private static String qualifiedName(String prefix, String name) {
+        return prefix == null || prefix.length() == 0 ? name : prefix + ":" + name;
+    }
+
+    private static class PropStat {
+        private final List<DefaultDavProperty<?>> properties = new ArrayList<>();
+        private int status = HttpStatus.SC_OK; // fallback if the server omits the propstat status
+    }
+}
@@ -30,6 +30,7 @@ import com.owncloud.android.lib.common.utils.Log_OC;
 
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.protocol.Protocol;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 import org.apache.http.conn.ssl.BrowserCompatHostnameVerifier;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 
@@ -63,8 +64,16 @@ public class NetworkUtils {
     /** Standard name for protocol TLS version 1.0 in JSSE API */
     public static final String PROTOCOL_TLSv1_0 = "TLSv1";
 
+    /** Default limit of connections to a single server in the shared pool */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 5;
+
+    /** Default limit of connections in the shared pool */
+    public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 5;
+
     /** Connection manager for all the OwnCloudClients */
-    private static MultiThreadedHttpConnectionManager mConnManager = null;
+    private static InstrumentedConnectionManager mConnManager = null;
+
+    private static IdleConnectionTimeoutThread mIdleConnectionTimeoutThread = null;
     
     private static Protocol mDefaultHttpsProtocol = null;
 
@@ -200,15 +209,69 @@ public class NetworkUtils {
 
     }
     
-    static public MultiThreadedHttpConnectionManager getMultiThreadedConnManager() {
+    static public synchronized MultiThreadedHttpConnectionManager getMultiThreadedConnManager() {
         if (mConnManager == null) {
-            mConnManager = new MultiThreadedHttpConnectionManager();
-            mConnManager.getParams().setDefaultMaxConnectionsPerHost(5);
-            mConnManager.getParams().setMaxTotalConnections(5);
+            mConnManager = new InstrumentedConnectionManager();
+            mConnManager.getParams().setDefaultMaxConnectionsPerHost(DEFAULT_MAX_CONNECTIONS_PER_HOST);
+            mConnManager.getParams().setMaxTotalConnections(DEFAULT_MAX_TOTAL_CONNECTIONS);
         }
         return mConnManager;
     }
 
+    /**
+     * Sizes the connection pool shared by all the OwnCloudClients. Takes effect for the next connection requests;
+     * leased connections are not closed.
+     *
+     * @param maxConnectionsPerHost     Maximum number of connections to a single server.
+     * @param maxTotalConnections       Maximum number of connections in the pool.
+     */
+    public static void setConnectionPoolSize(int maxConnectionsPerHost, int maxTotalConnections) {
+        if (maxConnectionsPerHost < 1 || maxTotalConnections < maxConnectionsPerHost) {
+            throw new IllegalArgumentException("Invalid pool size: " + maxConnectionsPerHost + " per host, " +
+                                                   maxTotalConnections + " in total");
+        }
+        MultiThreadedHttpConnectionManager connManager = getMultiThreadedConnManager();
+        connManager.getParams().setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        connManager.getParams().setMaxTotalConnections(maxTotalConnections);
+    }
+
+    /**
+     * Enables or disables the check for connections closed by the server before reusing a pooled one. The
+     * check costs a short read on every request, but avoids failures on connections dropped while idle.
+     */
+    public static void setConnectionStaleCheckingEnabled(boolean enabled) {
+        getMultiThreadedConnManager().getParams().setStaleCheckingEnabled(enabled);
+    }
+
+    /**
+     * Closes pooled connections once they have been idle for the given time, from a background thread.
+     *
+     * @param idleTimeoutMs     Idle time after which pooled connections are closed; 0 or less to keep them
+     *                          until the server closes them.
+     */
+    public static synchronized void setIdleConnectionTimeout(long idleTimeoutMs) {
+        if (mIdleConnectionTimeoutThread != null) {
+            mIdleConnectionTimeoutThread.shutdown();
+            mIdleConnectionTimeoutThread = null;
+        }
+        if (idleTimeoutMs > 0) {
+            mIdleConnectionTimeoutThread = new IdleConnectionTimeoutThread();
+            mIdleConnectionTimeoutThread.setName("IdleConnectionTimeout");
+            mIdleConnectionTimeoutThread.setConnectionTimeout(idleTimeoutMs);
+            mIdleConnectionTimeoutThread.setTimeoutInterval(Math.max(1000, idleTimeoutMs / 2));
+            mIdleConnectionTimeoutThread.addConnectionManager(getMultiThreadedConnManager());
+            mIdleConnectionTimeoutThread.start();
+        }
+    }
+
+    /**
+     * @return snapshot of the usage of the connection pool shared by all the OwnCloudClients
+     */
+    public static ConnectionPoolStats getConnectionPoolStats() {
+        getMultiThreadedConnManager();
+        return mConnManager.getStats();
+    }
+
     public static boolean isCertInKnownServersStore(Certificate cert, Context context) 
     		throws KeyStoreException, NoSuchAlgorithmException, CertificateException, IOException {
     	
@@ -0,0 +1,78 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Permanent redirections (301 and 308) received by a client, so later requests to the same URIs are sent
+ * directly to their new location instead of going through the redirection again.
+ *
+ * Bounded; the least recently used redirections are forgotten first.
+ */
+public class PermanentRedirectCache {
+
+    public static final int HTTP_PERMANENT_REDIRECT = 308;
+
+    private static final int MAX_ENTRIES = 64;
+    private static final int MAX_HOPS = 5;
+
+    private final Map<String, String> locations = new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    public static boolean isPermanentRedirection(int status) {
+        return status == 301 || status == HTTP_PERMANENT_REDIRECT;
+    }
+
+    public synchronized void put(String uri, String location) {
+        if (!uri.equals(location)) {
+            locations.put(uri, location);
+        }
+    }
+
+    /**
+     * @return the final location known for the URI, following chained redirections, or null if the URI is not
+     * redirected.
+     */
+    public synchronized String get(String uri) {
+        String location = null;
+        String next = locations.get(uri);
+        for (int hops = 0; next != null && hops < MAX_HOPS; hops++) {
+            location = next;
+            next = locations.get(location);
+        }
+        return location;
+    }
+
+    public synchronized void clear() {
+        locations.clear();
+    }
+}
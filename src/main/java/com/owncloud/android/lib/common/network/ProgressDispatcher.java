@@ -0,0 +1,99 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Notifies {@link OnDatatransferProgressListener}s about the progress of a transfer, at most once every
+ * {@link #DEFAULT_MIN_INTERVAL_MS}; the bytes transferred in between are accumulated into the next notification.
+ *
+ * Listeners can be added and removed from any thread without blocking the transfer. Progress must be reported from
+ * a single thread, the one writing the data.
+ */
+public class ProgressDispatcher {
+
+    public static final long DEFAULT_MIN_INTERVAL_MS = 250;
+
+    private final Set<OnDatatransferProgressListener> listeners = new CopyOnWriteArraySet<>();
+    private final long minIntervalMs;
+    private long pendingBytes = 0;
+    private long lastNotification = 0;
+
+    public ProgressDispatcher() {
+        this(DEFAULT_MIN_INTERVAL_MS);
+    }
+
+    public ProgressDispatcher(long minIntervalMs) {
+        this.minIntervalMs = minIntervalMs;
+    }
+
+    public void addListener(OnDatatransferProgressListener listener) {
+        listeners.add(listener);
+    }
+
+    public void addListeners(Collection<OnDatatransferProgressListener> listeners) {
+        this.listeners.addAll(listeners);
+    }
+
+    public void removeListener(OnDatatransferProgressListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Accounts transferred bytes, notifying the listeners if the minimum interval since the last notification elapsed.
+     */
+    public void onProgress(long bytes, long totalTransferredSoFar, long totalToTransfer, String fileAbsoluteName) {
+        pendingBytes += bytes;
+
+        long now = System.currentTimeMillis();
+        if (now - lastNotification >= minIntervalMs) {
+            lastNotification = now;
+            notifyListeners(totalTransferredSoFar, totalToTransfer, fileAbsoluteName);
+        }
+    }
+
+    /**
+     * Notifies the listeners about bytes not reported yet; to be called when the transfer finishes.
+     */
+    public void flush(long totalTransferredSoFar, long totalToTransfer, String fileAbsoluteName) {
+        if (pendingBytes > 0) {
+            lastNotification = System.currentTimeMillis();
+            notifyListeners(totalTransferredSoFar, totalToTransfer, fileAbsoluteName);
+        }
+    }
+
+    private void notifyListeners(long totalTransferredSoFar, long totalToTransfer, String fileAbsoluteName) {
+        long progressRate = pendingBytes;
+        pendingBytes = 0;
+
+        for (OnDatatransferProgressListener listener : listeners) {
+            listener.onTransferProgress(progressRate, totalTransferredSoFar, totalToTransfer, fileAbsoluteName);
+        }
+    }
+}
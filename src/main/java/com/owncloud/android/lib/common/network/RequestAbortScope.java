@@ -0,0 +1,131 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.commons.httpclient.HttpMethod;
+
+import java.io.InterruptedIOException;
+
+import okhttp3.Call;
+
+/**
+ * Lets a request be aborted from another thread while a remote operation runs.
+ *
+ * The thread running the operation enters the scope; the clients attach every request they start on that
+ * thread, so {@link #abort()} can interrupt whatever request is in flight and makes later ones fail before
+ * reaching the network. A request stays attached until the next one replaces it or the scope exits, so reading
+ * its response body can be aborted as well.
+ */
+public final class RequestAbortScope {
+
+    private static final ThreadLocal<RequestAbortScope> sCurrent = new ThreadLocal<>();
+
+    private boolean aborted = false;
+    private HttpMethod method;
+    private Call call;
+
+    public void enter() {
+        sCurrent.set(this);
+    }
+
+    public void exit() {
+        sCurrent.remove();
+        synchronized (this) {
+            method = null;
+            call = null;
+        }
+    }
+
+    /**
+     * Aborts the request in flight, if any, and every request attached afterwards.
+     */
+    public void abort() {
+        HttpMethod methodToAbort;
+        Call callToCancel;
+        synchronized (this) {
+            aborted = true;
+            methodToAbort = method;
+            callToCancel = call;
+        }
+        if (methodToAbort != null) {
+            methodToAbort.abort();
+        }
+        if (callToCancel != null) {
+            callToCancel.cancel();
+        }
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Attaches a method about to be executed on the current thread to its scope, if any.
+     *
+     * @throws InterruptedIOException if the scope was already aborted.
+     */
+    public static void attach(HttpMethod method) throws InterruptedIOException {
+        RequestAbortScope scope = sCurrent.get();
+        if (scope != null) {
+            synchronized (scope) {
+                scope.checkNotAborted();
+                scope.method = method;
+            }
+        }
+    }
+
+    public static void detach(HttpMethod method) {
+        RequestAbortScope scope = sCurrent.get();
+        if (scope != null) {
+            synchronized (scope) {
+                if (scope.method == method) {
+                    scope.method = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Attaches an OkHttp call about to be executed on the current thread to its scope, if any.
+     *
+     * @throws InterruptedIOException if the scope was already aborted.
+     */
+    public static void attach(Call call) throws InterruptedIOException {
+        RequestAbortScope scope = sCurrent.get();
+        if (scope != null) {
+            synchronized (scope) {
+                scope.checkNotAborted();
+                scope.call = call;
+            }
+        }
+    }
+
+    private void checkNotAborted() throws InterruptedIOException {
+        if (aborted) {
+            throw new InterruptedIOException("Request aborted");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+
+/**
+ * PROPFIND whose multistatus body is read incrementally through {@link MultiStatusReader}.
+ *
+ * {@link PropFindMethod} parses the whole body into a DOM as soon as the response arrives; this method leaves the
+ * body on the connection instead, so {@link #getResponseBodyAsMultiStatus()} is not available here.
+ */
+public class StreamingPropFindMethod extends PropFindMethod {
+
+    public StreamingPropFindMethod(String uri, DavPropertyNameSet propNameSet, int depth) throws IOException {
+        super(uri, propNameSet, depth);
+    }
+
+    /**
+     * @return reader over the responses of the multistatus body; must be consumed before the connection
+     * is released
+     */
+    public MultiStatusReader getResponseBodyAsMultiStatusReader() throws IOException, XmlPullParserException {
+        return new MultiStatusReader(getResponseBodyAsStream());
+    }
+
+    @Override
+    protected void processResponseBody(HttpState httpState, HttpConnection httpConnection) {
+        // body is parsed lazily by MultiStatusReader
+    }
+}
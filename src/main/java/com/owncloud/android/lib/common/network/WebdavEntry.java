@@ -67,6 +67,7 @@ public class WebdavEntry {
     public static final String EXTENDED_PROPERTY_NOTE = "note";
     public static final String EXTENDED_PROPERTY_SHAREES = "sharees";
     public static final String EXTENDED_PROPERTY_RICH_WORKSPACE = "rich-workspace";
+    public static final String EXTENDED_PROPERTY_CHECKSUMS = "checksums";
     public static final String TRASHBIN_FILENAME = "trashbin-filename";
     public static final String TRASHBIN_ORIGINAL_LOCATION = "trashbin-original-location";
     public static final String TRASHBIN_DELETION_TIME = "trashbin-deletion-time";
@@ -77,6 +78,48 @@ public class WebdavEntry {
     public static final String PROPERTY_QUOTA_USED_BYTES = "quota-used-bytes";
     public static final String PROPERTY_QUOTA_AVAILABLE_BYTES = "quota-available-bytes";
 
+    // namespaces and property names are resolved once, DavPropertyName.create synchronizes on a global cache
+    static final Namespace OC_NAMESPACE = Namespace.getNamespace(NAMESPACE_OC);
+    static final Namespace NC_NAMESPACE = Namespace.getNamespace(NAMESPACE_NC);
+    public static final DavPropertyName PROPERTY_NAME_PERMISSIONS =
+        DavPropertyName.create(EXTENDED_PROPERTY_NAME_PERMISSIONS, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_REMOTE_ID =
+        DavPropertyName.create(EXTENDED_PROPERTY_NAME_REMOTE_ID, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_SIZE =
+        DavPropertyName.create(EXTENDED_PROPERTY_NAME_SIZE, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_FAVORITE =
+        DavPropertyName.create(EXTENDED_PROPERTY_FAVORITE, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_IS_ENCRYPTED =
+        DavPropertyName.create(EXTENDED_PROPERTY_IS_ENCRYPTED, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_MOUNT_TYPE =
+        DavPropertyName.create(EXTENDED_PROPERTY_MOUNT_TYPE, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_OWNER_ID =
+        DavPropertyName.create(EXTENDED_PROPERTY_OWNER_ID, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_OWNER_DISPLAY_NAME =
+        DavPropertyName.create(EXTENDED_PROPERTY_OWNER_DISPLAY_NAME, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_UNREAD_COMMENTS =
+        DavPropertyName.create(EXTENDED_PROPERTY_UNREAD_COMMENTS, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_HAS_PREVIEW =
+        DavPropertyName.create(EXTENDED_PROPERTY_HAS_PREVIEW, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_NOTE =
+        DavPropertyName.create(EXTENDED_PROPERTY_NOTE, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_SHAREES =
+        DavPropertyName.create(EXTENDED_PROPERTY_SHAREES, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_RICH_WORKSPACE =
+        DavPropertyName.create(EXTENDED_PROPERTY_RICH_WORKSPACE, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_CHECKSUMS =
+        DavPropertyName.create(EXTENDED_PROPERTY_CHECKSUMS, OC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_TRASHBIN_FILENAME =
+        DavPropertyName.create(TRASHBIN_FILENAME, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_TRASHBIN_ORIGINAL_LOCATION =
+        DavPropertyName.create(TRASHBIN_ORIGINAL_LOCATION, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_TRASHBIN_DELETION_TIME =
+        DavPropertyName.create(TRASHBIN_DELETION_TIME, NC_NAMESPACE);
+    public static final DavPropertyName PROPERTY_NAME_QUOTA_USED_BYTES =
+        DavPropertyName.create(PROPERTY_QUOTA_USED_BYTES);
+    public static final DavPropertyName PROPERTY_NAME_QUOTA_AVAILABLE_BYTES =
+        DavPropertyName.create(PROPERTY_QUOTA_AVAILABLE_BYTES);
+
     private static final String IS_ENCRYPTED = "1";
 
     private static final int CODE_PROP_NOT_FOUND = 404;
@@ -107,15 +150,13 @@ public class WebdavEntry {
     @Getter private String note = "";
     @Getter private ShareeUser[] sharees = new ShareeUser[0];
     @Getter private String richWorkspace = "";
+    @Getter private String checksums;
 
     public enum MountType {INTERNAL, EXTERNAL, GROUP}
 
     public WebdavEntry(MultiStatusResponse ms, String splitElement) {
         resetData();
 
-        Namespace ocNamespace = Namespace.getNamespace(NAMESPACE_OC);
-        Namespace ncNamespace = Namespace.getNamespace(NAMESPACE_NC);
-        
         if (ms.getStatus().length != 0) {
             uri = ms.getHref();
 
@@ -195,7 +236,7 @@ public class WebdavEntry {
             }
 
             // {DAV:}quota-used-bytes
-            prop = propSet.get(DavPropertyName.create(PROPERTY_QUOTA_USED_BYTES));
+            prop = propSet.get(PROPERTY_NAME_QUOTA_USED_BYTES);
             if (prop != null) {
                 String quotaUsedBytesSt = (String) prop.getValue();
                 try {
@@ -209,7 +250,7 @@ public class WebdavEntry {
             }
 
             // {DAV:}quota-available-bytes
-            prop = propSet.get(DavPropertyName.create(PROPERTY_QUOTA_AVAILABLE_BYTES));
+            prop = propSet.get(PROPERTY_NAME_QUOTA_AVAILABLE_BYTES);
             if (prop != null) {
                 String quotaAvailableBytesSt = (String) prop.getValue();
                 try {
@@ -223,25 +264,25 @@ public class WebdavEntry {
             }
 
             // OC permissions property <oc:permissions>
-            prop = propSet.get(EXTENDED_PROPERTY_NAME_PERMISSIONS, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_PERMISSIONS);
             if (prop != null && prop.getValue() != null) {
                 permissions = prop.getValue().toString();
             }
 
             // OC remote id property <oc:id>
-            prop = propSet.get(EXTENDED_PROPERTY_NAME_REMOTE_ID, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_REMOTE_ID);
             if (prop != null) {
                 remoteId = prop.getValue().toString();
             }
 
             // OC size property <oc:size>
-            prop = propSet.get(EXTENDED_PROPERTY_NAME_SIZE, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_SIZE);
             if (prop != null) {
                 size = Long.parseLong((String) prop.getValue());
             }
 
             // OC favorite property <oc:favorite>
-            prop = propSet.get(EXTENDED_PROPERTY_FAVORITE, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_FAVORITE);
             if (prop != null) {
                 String favoriteValue = (String) prop.getValue();
                 favorite = IS_ENCRYPTED.equals(favoriteValue);
@@ -250,7 +291,7 @@ public class WebdavEntry {
             }
 
             // NC encrypted property <nc:is-encrypted>
-            prop = propSet.get(EXTENDED_PROPERTY_IS_ENCRYPTED, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_IS_ENCRYPTED);
             if (prop != null) {
                 String encryptedValue = (String) prop.getValue();
                 encrypted = IS_ENCRYPTED.equals(encryptedValue);
@@ -259,7 +300,7 @@ public class WebdavEntry {
             }
 
             // NC mount-type property <nc:mount-type>
-            prop = propSet.get(EXTENDED_PROPERTY_MOUNT_TYPE, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_MOUNT_TYPE);
             if (prop != null) {
                 if ("external".equals(prop.getValue())) {
                     mountType = MountType.EXTERNAL;
@@ -273,7 +314,7 @@ public class WebdavEntry {
             }
 
             // OC owner-id property <oc:owner-id>
-            prop = propSet.get(EXTENDED_PROPERTY_OWNER_ID, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_OWNER_ID);
             if (prop != null) {
                 ownerId = (String) prop.getValue();
             } else {
@@ -281,7 +322,7 @@ public class WebdavEntry {
             }
 
             // OC owner-display-name property <oc:owner-display-name>
-            prop = propSet.get(EXTENDED_PROPERTY_OWNER_DISPLAY_NAME, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_OWNER_DISPLAY_NAME);
             if (prop != null) {
                 ownerDisplayName = (String) prop.getValue();
             } else {
@@ -289,7 +330,7 @@ public class WebdavEntry {
             }
 
             // OC unread comments property <oc-comments-unread>
-            prop = propSet.get(EXTENDED_PROPERTY_UNREAD_COMMENTS, ocNamespace);
+            prop = propSet.get(PROPERTY_NAME_UNREAD_COMMENTS);
             if (prop != null) {
                 unreadCommentsCount = Integer.valueOf(prop.getValue().toString());
             } else {
@@ -297,7 +338,7 @@ public class WebdavEntry {
             }
 
             // NC has preview property <nc-has-preview>
-            prop = propSet.get(EXTENDED_PROPERTY_HAS_PREVIEW, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_HAS_PREVIEW);
             if (prop != null) {
                 hasPreview = Boolean.valueOf(prop.getValue().toString());
             } else {
@@ -305,37 +346,47 @@ public class WebdavEntry {
             }
             
             // NC trashbin-original-location <nc:trashbin-original-location>
-            prop = propSet.get(TRASHBIN_ORIGINAL_LOCATION, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_TRASHBIN_ORIGINAL_LOCATION);
             if (prop != null) {
                 trashbinOriginalLocation = prop.getValue().toString();
             }
 
             // NC trashbin-filename <nc:trashbin-filename>
-            prop = propSet.get(TRASHBIN_FILENAME, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_TRASHBIN_FILENAME);
             if (prop != null) {
                 trashbinFilename = prop.getValue().toString();
             }
 
             // NC trashbin-deletion-time <nc:trashbin-deletion-time>
-            prop = propSet.get(TRASHBIN_DELETION_TIME, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_TRASHBIN_DELETION_TIME);
             if (prop != null) {
                 trashbinDeletionTimestamp = Long.parseLong((String) prop.getValue());
             }
 
             // NC note property <nc:note>
-            prop = propSet.get(EXTENDED_PROPERTY_NOTE, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_NOTE);
             if (prop != null && prop.getValue() != null) {
                 note = prop.getValue().toString();
             }
 
             // NC rich-workspace property <nc:rich-workspace>
-            prop = propSet.get(EXTENDED_PROPERTY_RICH_WORKSPACE, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_RICH_WORKSPACE);
             if (prop != null && prop.getValue() != null) {
                 richWorkspace = prop.getValue().toString();
             }
 
+            // OC checksums property <oc:checksums><oc:checksum>SHA1:... MD5:...</oc:checksum></oc:checksums>
+            prop = propSet.get(PROPERTY_NAME_CHECKSUMS);
+            if (prop != null && prop.getValue() != null) {
+                if (prop.getValue() instanceof Element) {
+                    checksums = ((Element) prop.getValue()).getTextContent();
+                } else {
+                    checksums = prop.getValue().toString();
+                }
+            }
+
             // NC sharees property <nc-sharees>
-            prop = propSet.get(EXTENDED_PROPERTY_SHAREES, ncNamespace);
+            prop = propSet.get(PROPERTY_NAME_SHAREES);
             if (prop != null && prop.getValue() != null) {
                 if (prop.getValue() instanceof ArrayList) {
                     ArrayList list = (ArrayList) prop.getValue();
@@ -422,7 +473,7 @@ public class WebdavEntry {
 
     private void resetData() {
         name = uri = contentType = permissions = null;
-        remoteId = null;
+        remoteId = checksums = null;
         contentLength = createTimestamp = modifiedTimestamp = 0;
         size = 0;
         quotaUsedBytes = null;
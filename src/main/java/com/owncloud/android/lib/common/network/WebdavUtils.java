@@ -30,43 +30,214 @@ import android.net.Uri;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameIterator;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.apache.jackrabbit.webdav.property.PropEntry;
 import org.apache.jackrabbit.webdav.xml.Namespace;
 
-import java.text.ParseException;
+import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Locale;
 
 public class WebdavUtils {
-    private static final SimpleDateFormat DATETIME_FORMATS[] = {
-    	new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US),
-    	new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US),	
-		new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.sss'Z'", Locale.US),
-		new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US),
-		new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US),
-		new SimpleDateFormat("EEEEEE, dd-MMM-yy HH:mm:ss zzz", Locale.US),
-		new SimpleDateFormat("EEE MMMM d HH:mm:ss yyyy", Locale.US),
-		new SimpleDateFormat("yyyy-MM-dd hh:mm:ss", Locale.US)
-	};
+    private static final String[] DATETIME_PATTERNS = {
+        "yyyy-MM-dd'T'HH:mm:ss'Z'",
+        "EEE, dd MMM yyyy HH:mm:ss zzz",
+        "yyyy-MM-dd'T'HH:mm:ss.sss'Z'",
+        "yyyy-MM-dd'T'HH:mm:ssZ",
+        "EEE MMM dd HH:mm:ss zzz yyyy",
+        "EEEEEE, dd-MMM-yy HH:mm:ss zzz",
+        "EEE MMMM d HH:mm:ss yyyy",
+        "yyyy-MM-dd hh:mm:ss"
+    };
 
+    /**
+     * SimpleDateFormat is not thread safe, every thread gets its own set instead of serialising on a lock
+     */
+    private static final ThreadLocal<SimpleDateFormat[]> DATETIME_FORMATS = new ThreadLocal<SimpleDateFormat[]>() {
+        @Override
+        protected SimpleDateFormat[] initialValue() {
+            SimpleDateFormat[] formats = new SimpleDateFormat[DATETIME_PATTERNS.length];
+            for (int i = 0; i < DATETIME_PATTERNS.length; i++) {
+                formats[i] = new SimpleDateFormat(DATETIME_PATTERNS[i], Locale.US);
+            }
+            return formats;
+        }
+    };
+
+    private static final String[] MONTHS = {
+        "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private static final long INVALID_DATE = Long.MIN_VALUE;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    /**
+     * Parses a date sent by the server.
+     *
+     * RFC 1123 dates (getlastmodified) and ISO-8601 dates with a zone designator (creationdate) are parsed
+     * without any locking or intermediate objects; anything else falls back to the legacy list of formats.
+     *
+     * @param date  Date as received from the server
+     * @return      Parsed date, or null if the value does not match any known format
+     */
     public static Date parseResponseDate(String date) {
-        Date returnDate = null;
-        SimpleDateFormat format = null;
-        for (int i = 0; i < DATETIME_FORMATS.length; ++i) {
-            try {
-            	format = DATETIME_FORMATS[i];
-            	synchronized(format) {
-            		returnDate = format.parse(date);
-            	}
+        if (date == null) {
+            return null;
+        }
+
+        long time = parseRfc1123Date(date);
+        if (time == INVALID_DATE) {
+            time = parseIso8601Date(date);
+        }
+        if (time != INVALID_DATE) {
+            return new Date(time);
+        }
+
+        for (SimpleDateFormat format : DATETIME_FORMATS.get()) {
+            // parse position avoids creating and throwing a ParseException for every miss
+            Date returnDate = format.parse(date, new ParsePosition(0));
+            if (returnDate != null) {
                 return returnDate;
-            } catch (ParseException e) {
-            	// this is not the format
             }
         }
         return null;
     }
 
+    /**
+     * Parses "EEE, dd MMM yyyy HH:mm:ss GMT".
+     */
+    private static long parseRfc1123Date(String date) {
+        if (date.length() != 29 || date.charAt(3) != ',' || date.charAt(4) != ' ' || date.charAt(7) != ' ' ||
+            date.charAt(11) != ' ' || date.charAt(16) != ' ' || date.charAt(19) != ':' ||
+            date.charAt(22) != ':' || date.charAt(25) != ' ' ||
+            !(date.startsWith("GMT", 26) || date.startsWith("UTC", 26))) {
+            return INVALID_DATE;
+        }
+
+        int month = -1;
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (date.startsWith(MONTHS[i], 8)) {
+                month = i + 1;
+                break;
+            }
+        }
+
+        return toEpochMillis(parseDigits(date, 12, 4), month, parseDigits(date, 5, 2), parseDigits(date, 17, 2),
+                             parseDigits(date, 20, 2), parseDigits(date, 23, 2), 0, 0);
+    }
+
+    /**
+     * Parses "yyyy-MM-ddTHH:mm:ss[.fraction]" followed by "Z", "+HH:mm" or "+HHmm".
+     */
+    private static long parseIso8601Date(String date) {
+        int length = date.length();
+        if (length < 20 || date.charAt(4) != '-' || date.charAt(7) != '-' || date.charAt(10) != 'T' ||
+            date.charAt(13) != ':' || date.charAt(16) != ':') {
+            return INVALID_DATE;
+        }
+
+        int position = 19;
+        int millis = 0;
+        if (date.charAt(position) == '.') {
+            position++;
+            int digits = 0;
+            while (position < length && date.charAt(position) >= '0' && date.charAt(position) <= '9') {
+                if (digits < 3) {
+                    millis = millis * 10 + (date.charAt(position) - '0');
+                }
+                digits++;
+                position++;
+            }
+            if (digits == 0) {
+                return INVALID_DATE;
+            }
+            for (; digits < 3; digits++) {
+                millis *= 10;
+            }
+        }
+
+        if (position >= length) {
+            return INVALID_DATE;
+        }
+
+        int offsetMinutes;
+        char zone = date.charAt(position);
+        if (zone == 'Z' && position + 1 == length) {
+            offsetMinutes = 0;
+        } else if (zone == '+' || zone == '-') {
+            int hours = parseDigits(date, position + 1, 2);
+            int minutes;
+            if (position + 6 == length && date.charAt(position + 3) == ':') {
+                minutes = parseDigits(date, position + 4, 2);
+            } else if (position + 5 == length) {
+                minutes = parseDigits(date, position + 3, 2);
+            } else {
+                return INVALID_DATE;
+            }
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+                return INVALID_DATE;
+            }
+            offsetMinutes = (zone == '-' ? -1 : 1) * (hours * 60 + minutes);
+        } else {
+            return INVALID_DATE;
+        }
+
+        return toEpochMillis(parseDigits(date, 0, 4), parseDigits(date, 5, 2), parseDigits(date, 8, 2),
+                             parseDigits(date, 11, 2), parseDigits(date, 14, 2), parseDigits(date, 17, 2), millis,
+                             offsetMinutes);
+    }
+
+    /**
+     * @return value of the decimal digits at the given position, or -1 if any of them is not a digit
+     */
+    private static int parseDigits(String value, int start, int count) {
+        if (start + count > value.length()) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /**
+     * Converts a proleptic Gregorian date and time to milliseconds since the epoch, using the days-from-civil
+     * algorithm. Out of range fields are rejected, so the lenient legacy formats still get their chance.
+     */
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second, int millis,
+                                      int offsetMinutes) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) ||
+            hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_DATE;
+        }
+
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        long epochDay = era * 146097L + dayOfEra - 719468;
+
+        return epochDay * MILLIS_PER_DAY + ((hour * 60L + minute - offsetMinutes) * 60L + second) * 1000L + millis;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
     /**
      * Encodes a path according to URI RFC 2396. 
      * 
@@ -82,94 +253,130 @@ public class WebdavUtils {
         return encodedPath;
     }
 
+    // built once from the resolved property names; the public getters hand out copies, as callers used to be
+    // free to modify the returned sets
+    private static final DavPropertyNameSet ALL_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.DISPLAYNAME,
+        DavPropertyName.GETCONTENTTYPE,
+        DavPropertyName.RESOURCETYPE,
+        DavPropertyName.GETCONTENTLENGTH,
+        DavPropertyName.GETLASTMODIFIED,
+        DavPropertyName.CREATIONDATE,
+        DavPropertyName.GETETAG,
+        WebdavEntry.PROPERTY_NAME_PERMISSIONS,
+        WebdavEntry.PROPERTY_NAME_REMOTE_ID,
+        WebdavEntry.PROPERTY_NAME_SIZE,
+        WebdavEntry.PROPERTY_NAME_FAVORITE,
+        WebdavEntry.PROPERTY_NAME_IS_ENCRYPTED,
+        WebdavEntry.PROPERTY_NAME_MOUNT_TYPE,
+        WebdavEntry.PROPERTY_NAME_OWNER_ID,
+        WebdavEntry.PROPERTY_NAME_OWNER_DISPLAY_NAME,
+        WebdavEntry.PROPERTY_NAME_UNREAD_COMMENTS,
+        WebdavEntry.PROPERTY_NAME_HAS_PREVIEW,
+        WebdavEntry.PROPERTY_NAME_NOTE,
+        WebdavEntry.PROPERTY_NAME_SHAREES,
+        WebdavEntry.PROPERTY_NAME_RICH_WORKSPACE);
+
+    private static final DavPropertyNameSet FILE_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.DISPLAYNAME,
+        DavPropertyName.GETCONTENTTYPE,
+        DavPropertyName.RESOURCETYPE,
+        DavPropertyName.GETCONTENTLENGTH,
+        DavPropertyName.GETLASTMODIFIED,
+        DavPropertyName.CREATIONDATE,
+        DavPropertyName.GETETAG,
+        WebdavEntry.PROPERTY_NAME_PERMISSIONS,
+        WebdavEntry.PROPERTY_NAME_REMOTE_ID,
+        WebdavEntry.PROPERTY_NAME_SIZE,
+        WebdavEntry.PROPERTY_NAME_FAVORITE,
+        WebdavEntry.PROPERTY_NAME_HAS_PREVIEW);
+
+    private static final DavPropertyNameSet TRASHBIN_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.RESOURCETYPE,
+        DavPropertyName.GETCONTENTTYPE,
+        DavPropertyName.GETCONTENTLENGTH,
+        WebdavEntry.PROPERTY_NAME_SIZE,
+        WebdavEntry.PROPERTY_NAME_REMOTE_ID,
+        WebdavEntry.PROPERTY_NAME_TRASHBIN_FILENAME,
+        WebdavEntry.PROPERTY_NAME_TRASHBIN_ORIGINAL_LOCATION,
+        WebdavEntry.PROPERTY_NAME_TRASHBIN_DELETION_TIME);
+
+    private static final DavPropertyNameSet FILE_VERSION_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.GETCONTENTTYPE,
+        DavPropertyName.RESOURCETYPE,
+        DavPropertyName.GETCONTENTLENGTH,
+        DavPropertyName.GETLASTMODIFIED,
+        DavPropertyName.CREATIONDATE,
+        WebdavEntry.PROPERTY_NAME_REMOTE_ID,
+        WebdavEntry.PROPERTY_NAME_SIZE);
+
+    private static final DavPropertyNameSet SYNC_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.RESOURCETYPE,
+        DavPropertyName.GETETAG,
+        WebdavEntry.PROPERTY_NAME_REMOTE_ID,
+        WebdavEntry.PROPERTY_NAME_SIZE);
+
+    private static final DavPropertyNameSet CHECKSUM_PROP_SET = new ImmutableDavPropertyNameSet(
+        DavPropertyName.GETCONTENTLENGTH,
+        WebdavEntry.PROPERTY_NAME_CHECKSUMS);
+
     /**
-     * Builds a DavPropertyNameSet with all prop
+     * Returns a DavPropertyNameSet with all prop
      * For using instead of DavConstants.PROPFIND_ALL_PROP
-     * @return
+     * @return new set, callers may add or remove properties
      */
     public static DavPropertyNameSet getAllPropSet() {
-        Namespace ocNamespace = Namespace.getNamespace(WebdavEntry.NAMESPACE_OC);
-        Namespace ncNamespace = Namespace.getNamespace(WebdavEntry.NAMESPACE_NC);
-        DavPropertyNameSet propSet = new DavPropertyNameSet();
-        propSet.add(DavPropertyName.DISPLAYNAME);
-        propSet.add(DavPropertyName.GETCONTENTTYPE);
-        propSet.add(DavPropertyName.RESOURCETYPE);
-        propSet.add(DavPropertyName.GETCONTENTLENGTH);
-        propSet.add(DavPropertyName.GETLASTMODIFIED);
-        propSet.add(DavPropertyName.CREATIONDATE);
-        propSet.add(DavPropertyName.GETETAG);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_PERMISSIONS, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_REMOTE_ID, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_SIZE, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_FAVORITE, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_IS_ENCRYPTED, ncNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_MOUNT_TYPE, ncNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_OWNER_ID, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_OWNER_DISPLAY_NAME, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_UNREAD_COMMENTS, ocNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_HAS_PREVIEW, ncNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NOTE, ncNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_SHAREES, ncNamespace);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_RICH_WORKSPACE, ncNamespace);
-
-        return propSet;
-    }
-
-    /**
-     * Builds a DavPropertyNameSet with properties for files
-     * @return
+        return new DavPropertyNameSet(ALL_PROP_SET);
+    }
+
+    /**
+     * Returns a DavPropertyNameSet with properties for files
+     * @return new set, callers may add or remove properties
      */
     public static DavPropertyNameSet getFilePropSet() {
-        DavPropertyNameSet propSet = new DavPropertyNameSet();
-        propSet.add(DavPropertyName.DISPLAYNAME);
-        propSet.add(DavPropertyName.GETCONTENTTYPE);
-        propSet.add(DavPropertyName.RESOURCETYPE);
-        propSet.add(DavPropertyName.GETCONTENTLENGTH);
-        propSet.add(DavPropertyName.GETLASTMODIFIED);
-        propSet.add(DavPropertyName.CREATIONDATE);
-        propSet.add(DavPropertyName.GETETAG);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_PERMISSIONS, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_REMOTE_ID, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_SIZE, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_FAVORITE, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_HAS_PREVIEW, Namespace.getNamespace(WebdavEntry.NAMESPACE_NC));
-
-        return propSet;
+        return new DavPropertyNameSet(FILE_PROP_SET);
     }
 
     /**
-     * Builds a DavPropertyNameSet with properties for trashbin
-     * @return
+     * Returns a DavPropertyNameSet with properties for trashbin
+     * @return new set, callers may add or remove properties
      */
     public static DavPropertyNameSet getTrashbinPropSet() {
-        DavPropertyNameSet propSet = new DavPropertyNameSet();
-        propSet.add(DavPropertyName.RESOURCETYPE);
-        propSet.add(DavPropertyName.GETCONTENTTYPE);
-        propSet.add(DavPropertyName.GETCONTENTLENGTH);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_SIZE, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_REMOTE_ID, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.TRASHBIN_FILENAME, Namespace.getNamespace(WebdavEntry.NAMESPACE_NC));
-        propSet.add(WebdavEntry.TRASHBIN_ORIGINAL_LOCATION, Namespace.getNamespace(WebdavEntry.NAMESPACE_NC));
-        propSet.add(WebdavEntry.TRASHBIN_DELETION_TIME, Namespace.getNamespace(WebdavEntry.NAMESPACE_NC));
-
-        return propSet;
+        return new DavPropertyNameSet(TRASHBIN_PROP_SET);
     }
 
     /**
-     * Builds a DavPropertyNameSet with properties for versions
-     * @return
+     * Returns a DavPropertyNameSet with properties for versions
+     * @return new set, callers may add or remove properties
      */
     public static DavPropertyNameSet getFileVersionPropSet() {
-        DavPropertyNameSet propSet = new DavPropertyNameSet();
-        propSet.add(DavPropertyName.GETCONTENTTYPE);
-        propSet.add(DavPropertyName.RESOURCETYPE);
-        propSet.add(DavPropertyName.GETCONTENTLENGTH);
-        propSet.add(DavPropertyName.GETLASTMODIFIED);
-        propSet.add(DavPropertyName.CREATIONDATE);
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_REMOTE_ID, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
-        propSet.add(WebdavEntry.EXTENDED_PROPERTY_NAME_SIZE, Namespace.getNamespace(WebdavEntry.NAMESPACE_OC));
+        return new DavPropertyNameSet(FILE_VERSION_PROP_SET);
+    }
+
+    /**
+     * Returns a minimal DavPropertyNameSet for synchronization: resource type, etag, file id and size only
+     * @return new set, callers may add or remove properties
+     */
+    public static DavPropertyNameSet getSyncPropSet() {
+        return new DavPropertyNameSet(SYNC_PROP_SET);
+    }
 
-        return propSet;
+    /**
+     * Returns a DavPropertyNameSet to compare a local file with its remote counterpart: size and checksums only
+     * @return new set, callers may add or remove properties
+     */
+    public static DavPropertyNameSet getChecksumPropSet() {
+        return new DavPropertyNameSet(CHECKSUM_PROP_SET);
+    }
+
+    /**
+     * Builds an unmodifiable DavPropertyNameSet, for callers that want to request a custom set of properties
+     * and reuse it across requests without copying it each time
+     * @param propertyNames properties to request
+     * @return unmodifiable set
+     */
+    public static DavPropertyNameSet createPropSet(DavPropertyName... propertyNames) {
+        return new ImmutableDavPropertyNameSet(propertyNames);
     }
 
     /**
@@ -214,4 +421,87 @@ public class WebdavUtils {
         return result;
     }
 
+
+    /**
+     * DavPropertyNameSet that rejects modifications once built, so a single instance can be shared by all requests
+     */
+    private static final class ImmutableDavPropertyNameSet extends DavPropertyNameSet {
+        private final boolean sealed;
+
+        ImmutableDavPropertyNameSet(DavPropertyName... propertyNames) {
+            for (DavPropertyName propertyName : propertyNames) {
+                super.add(propertyName);
+            }
+            sealed = true;
+        }
+
+        @Override
+        public boolean add(DavPropertyName propertyName) {
+            checkNotSealed();
+            return super.add(propertyName);
+        }
+
+        @Override
+        public boolean add(String localName, Namespace namespace) {
+            checkNotSealed();
+            return super.add(localName, namespace);
+        }
+
+        @Override
+        public boolean addAll(DavPropertyNameSet propertyNames) {
+            checkNotSealed();
+            return super.addAll(propertyNames);
+        }
+
+        @Override
+        public boolean addContent(PropEntry contentEntry) {
+            checkNotSealed();
+            return super.addContent(contentEntry);
+        }
+
+        @Override
+        public boolean remove(DavPropertyName propertyName) {
+            checkNotSealed();
+            return super.remove(propertyName);
+        }
+
+        @Override
+        public DavPropertyNameIterator iterator() {
+            final DavPropertyNameIterator iterator = super.iterator();
+            return new DavPropertyNameIterator() {
+                @Override
+                public DavPropertyName nextPropertyName() {
+                    return iterator.nextPropertyName();
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public DavPropertyName next() {
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    checkNotSealed();
+                    iterator.remove();
+                }
+            };
+        }
+
+        @Override
+        public Collection<DavPropertyName> getContent() {
+            // the content is the backing set of the parent, it would allow clear() and removals otherwise
+            return Collections.unmodifiableCollection(super.getContent());
+        }
+
+        private void checkNotSealed() {
+            if (sealed) {
+                throw new UnsupportedOperationException("Shared property set can not be modified");
+            }
+        }
+    }
 }
@@ -0,0 +1,237 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import android.net.Uri;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.NetworkUtils;
+import com.owncloud.android.lib.common.network.RequestAbortScope;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Runs many remote operations against one account, with a bounded number of them in progress at once.
+ *
+ * All batches share one pool of threads, sized like the pool of HTTP connections, and the free threads are
+ * handed to the hosts of the waiting batches in turn, so a long batch for one account does not hold back
+ * the operations of the others.
+ */
+public class BatchOperationExecutor {
+
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** Threads shared by all the batches; more would only wait for a connection of the pool */
+    public static final int DEFAULT_SHARED_THREADS = NetworkUtils.DEFAULT_MAX_TOTAL_CONNECTIONS;
+
+    private static final long SHARED_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static final ThreadPoolExecutor sSharedExecutor = createSharedExecutor();
+    private static final HostFairDispatcher sDispatcher = new HostFairDispatcher(sSharedExecutor);
+
+    private final OwnCloudClient client;
+    private final int parallelism;
+    private final boolean failFast;
+
+    /**
+     * @param client        Client to run the operations with.
+     * @param parallelism   Maximum number of operations of a batch in progress at once.
+     * @param failFast      When true, the first failed operation aborts those in progress and no more are
+     *                      started; when false, every operation is run whatever the results.
+     */
+    public BatchOperationExecutor(@NonNull OwnCloudClient client, int parallelism, boolean failFast) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.client = client;
+        this.parallelism = parallelism;
+        this.failFast = failFast;
+    }
+
+    public BatchOperationExecutor(@NonNull OwnCloudClient client) {
+        this(client, DEFAULT_PARALLELISM, false);
+    }
+
+    /**
+     * Runs the operations and waits for all of them to finish.
+     *
+     * Do not call this method from the main thread.
+     *
+     * @throws InterruptedException if the calling thread is interrupted while waiting; the operations in
+     *                              progress are aborted.
+     */
+    public BatchOperationResult execute(List<? extends RemoteOperation> operations) throws InterruptedException {
+        return new Batch(operations).run();
+    }
+
+    /**
+     * Sets the number of threads shared by all batches; call it after changing the size of the connection pool
+     * with {@link NetworkUtils#setConnectionPoolSize(int, int)}.
+     */
+    public static void setSharedThreads(int threads) {
+        synchronized (sSharedExecutor) {
+            if (threads > sSharedExecutor.getMaximumPoolSize()) {
+                sSharedExecutor.setMaximumPoolSize(threads);
+                sSharedExecutor.setCorePoolSize(threads);
+            } else {
+                sSharedExecutor.setCorePoolSize(threads);
+                sSharedExecutor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createSharedExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_SHARED_THREADS, DEFAULT_SHARED_THREADS,
+                                                             SHARED_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(),
+                                                             new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(runnable, "BatchOperation-" + threadCount.incrementAndGet());
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private String getHost() {
+        Uri baseUri = client.getBaseUri();
+        return baseUri == null ? "" : String.valueOf(baseUri.getHost());
+    }
+
+    /**
+     * State of one call to {@link #execute(List)}; operations are handed to the dispatcher only as slots free
+     * up, so a batch never has more than {@link #parallelism} of them queued or running.
+     */
+    private class Batch {
+
+        private final List<? extends RemoteOperation> operations;
+        private final RemoteOperationResult[] results;
+        private final Set<RequestAbortScope> runningScopes = new HashSet<>();
+        private final String host = getHost();
+
+        private int nextIndex = 0;
+        private int pending = 0;
+        private boolean stopped = false;
+
+        Batch(List<? extends RemoteOperation> operations) {
+            this.operations = operations;
+            this.results = new RemoteOperationResult[operations.size()];
+        }
+
+        BatchOperationResult run() throws InterruptedException {
+            synchronized (this) {
+                submitMore();
+                try {
+                    while (pending > 0) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    stop();
+                    throw e;
+                }
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = new RemoteOperationResult(ResultCode.CANCELLED);
+                }
+            }
+            return new BatchOperationResult(new ArrayList<>(Arrays.asList(results)));
+        }
+
+        /** Called with the lock of the batch held */
+        private void submitMore() {
+            while (!stopped && pending < parallelism && nextIndex < results.length) {
+                final int index = nextIndex++;
+                pending++;
+                sDispatcher.submit(host, new Runnable() {
+                    @Override
+                    public void run() {
+                        runOperation(index);
+                    }
+                });
+            }
+        }
+
+        private void runOperation(int index) {
+            RequestAbortScope scope = new RequestAbortScope();
+            RemoteOperationResult result = null;
+            boolean start;
+            synchronized (this) {
+                start = !stopped;
+                if (start) {
+                    runningScopes.add(scope);
+                }
+            }
+            if (start) {
+                scope.enter();
+                try {
+                    result = operations.get(index).execute(client);
+                } catch (RuntimeException e) {
+                    result = new RemoteOperationResult(e);
+                } finally {
+                    scope.exit();
+                }
+            }
+
+            synchronized (this) {
+                runningScopes.remove(scope);
+                results[index] = result;
+                pending--;
+                if (failFast && result != null && !result.isSuccess()) {
+                    stop();
+                }
+                submitMore();
+                notifyAll();
+            }
+        }
+
+        /** Called with the lock of the batch held */
+        private void stop() {
+            if (!stopped) {
+                stopped = true;
+                for (RequestAbortScope scope : runningScopes) {
+                    scope.abort();
+                }
+            }
+        }
+    }
+}
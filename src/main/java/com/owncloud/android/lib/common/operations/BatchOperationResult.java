@@ -0,0 +1,73 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of the operations run by a {@link BatchOperationExecutor}, in the order the operations were given.
+ *
+ * Operations not started because the batch failed fast have a {@link RemoteOperationResult.ResultCode#CANCELLED}
+ * result.
+ */
+public class BatchOperationResult {
+
+    private final List<RemoteOperationResult> results;
+
+    BatchOperationResult(List<RemoteOperationResult> results) {
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    public List<RemoteOperationResult> getResults() {
+        return results;
+    }
+
+    public RemoteOperationResult getResult(int index) {
+        return results.get(index);
+    }
+
+    public int getSuccessCount() {
+        int count = 0;
+        for (RemoteOperationResult result : results) {
+            if (result.isSuccess()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getFailureCount() {
+        return results.size() - getSuccessCount();
+    }
+
+    /**
+     * @return true if every operation was run and succeeded.
+     */
+    public boolean isSuccess() {
+        return getFailureCount() == 0;
+    }
+}
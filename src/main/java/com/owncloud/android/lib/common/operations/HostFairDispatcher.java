@@ -0,0 +1,90 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs tasks on a shared executor, taking them from the queues of the different hosts in turn.
+ *
+ * Every submitted task is paired with one pull from the queues, so a host with thousands of pending tasks
+ * gets the next free thread only when its turn comes, and hosts submitting later are not starved.
+ */
+class HostFairDispatcher {
+
+    private final Executor executor;
+    private final Map<String, Queue<Runnable>> queues = new LinkedHashMap<>();
+
+    private final Runnable pullNext = new Runnable() {
+        @Override
+        public void run() {
+            Runnable task = poll();
+            if (task != null) {
+                task.run();
+            }
+        }
+    };
+
+    HostFairDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    void submit(String host, Runnable task) {
+        synchronized (queues) {
+            Queue<Runnable> queue = queues.get(host);
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                queues.put(host, queue);
+            }
+            queue.add(task);
+        }
+        executor.execute(pullNext);
+    }
+
+    /**
+     * Takes the next task of the first host in turn, and moves that host to the end of the turn.
+     */
+    private Runnable poll() {
+        synchronized (queues) {
+            Iterator<Map.Entry<String, Queue<Runnable>>> iterator = queues.entrySet().iterator();
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            Map.Entry<String, Queue<Runnable>> first = iterator.next();
+            Runnable task = first.getValue().poll();
+            iterator.remove();
+            if (!first.getValue().isEmpty()) {
+                queues.put(first.getKey(), first.getValue());
+            }
+            return task;
+        }
+    }
+}
@@ -32,7 +32,6 @@ import android.content.Context;
 import android.os.Handler;
 
 import com.nextcloud.common.NextcloudClient;
-import com.owncloud.android.lib.common.OwnCloudAccount;
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.OwnCloudClientFactory;
 import com.owncloud.android.lib.common.OwnCloudClientManagerFactory;
@@ -42,6 +41,13 @@ import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCo
 import com.owncloud.android.lib.common.utils.Log_OC;
 
 import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import androidx.annotation.NonNull;
 
@@ -67,6 +73,13 @@ public abstract class RemoteOperation implements Runnable {
     public static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
     public static final String JSON_ENCODED = "application/json";
 
+    /** Number of operations run at once by the executeAsync methods, unless another executor is set */
+    public static final int DEFAULT_ASYNC_THREADS = 4;
+
+    private static final long ASYNC_THREAD_KEEP_ALIVE_SECONDS = 30;
+
+    private static ExecutorService sAsyncExecutor = null;
+
     /** ownCloud account in the remote ownCloud server to operate */
     private Account mAccount = null;
     
@@ -128,10 +141,8 @@ public abstract class RemoteOperation implements Runnable {
         mAccount = account;
         mContext = context.getApplicationContext();
         try {
-            Log_OC.d(this, "creating owncloud account object");
-        	OwnCloudAccount ocAccount = new OwnCloudAccount(mAccount, mContext);
             Log_OC.d(this, "using own cloud client manager factory to get client");
-            mClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(ocAccount, mContext);
+            mClient = OwnCloudClientManagerFactory.getDefaultSingleton().getClientFor(mAccount, mContext);
         } catch (Exception e) {
             Log_OC.e(TAG, "Error while trying to access to " + mAccount.name, e);
             return new RemoteOperationResult(e);
@@ -157,8 +168,7 @@ public abstract class RemoteOperation implements Runnable {
         mAccount = account;
         mContext = context.getApplicationContext();
         try {
-            OwnCloudAccount ocAccount = new OwnCloudAccount(mAccount, mContext);
-            clientNew = OwnCloudClientManagerFactory.getDefaultSingleton().getNextcloudClientFor(ocAccount, mContext);
+            clientNew = OwnCloudClientManagerFactory.getDefaultSingleton().getNextcloudClientFor(mAccount, mContext);
         } catch (Exception e) {
             Log_OC.e(TAG, "Error while trying to access to " + mAccount.name, e);
             return new RemoteOperationResult(e);
@@ -204,6 +214,99 @@ public abstract class RemoteOperation implements Runnable {
         return run(client);
     }
 
+    /**
+     * Asynchronously executes the remote operation on the shared executor of remote operations.
+     *
+     * Cancelling the returned future aborts the request in progress.
+     *
+     * @param client    Client object to reach an ownCloud server during the execution of the operation.
+     * @return          Pending result of the operation.
+     */
+    public RemoteOperationFuture executeAsync(@NonNull OwnCloudClient client) {
+        return executeAsync(client, null, null);
+    }
+
+    /**
+     * Asynchronously executes the remote operation on the shared executor of remote operations.
+     *
+     * Cancelling the returned future aborts the request in progress; the listener is not notified then.
+     *
+     * @param client            Client object to reach an ownCloud server during the execution of the operation.
+     * @param listener          Listener to be notified about the execution of the operation, or null.
+     * @param listenerHandler   Handler associated to the thread where the methods of the listener must be
+     *                          called, or null to call them in the thread running the operation.
+     * @return                  Pending result of the operation.
+     */
+    public RemoteOperationFuture executeAsync(@NonNull final OwnCloudClient client,
+                                              OnRemoteOperationListener listener,
+                                              Handler listenerHandler) {
+        return submit(new Callable<RemoteOperationResult>() {
+            @Override
+            public RemoteOperationResult call() {
+                return execute(client);
+            }
+        }, listener, listenerHandler);
+    }
+
+    /**
+     * Asynchronously executes the remote operation on the shared executor of remote operations.
+     *
+     * Cancelling the returned future aborts the request in progress; the listener is not notified then.
+     *
+     * @param client            Client object to reach an ownCloud server during the execution of the operation.
+     * @param listener          Listener to be notified about the execution of the operation, or null.
+     * @param listenerHandler   Handler associated to the thread where the methods of the listener must be
+     *                          called, or null to call them in the thread running the operation.
+     * @return                  Pending result of the operation.
+     */
+    public RemoteOperationFuture executeAsync(@NonNull final NextcloudClient client,
+                                              OnRemoteOperationListener listener,
+                                              Handler listenerHandler) {
+        return submit(new Callable<RemoteOperationResult>() {
+            @Override
+            public RemoteOperationResult call() {
+                return execute(client);
+            }
+        }, listener, listenerHandler);
+    }
+
+    private RemoteOperationFuture submit(Callable<RemoteOperationResult> callable,
+                                         OnRemoteOperationListener listener,
+                                         Handler listenerHandler) {
+        RemoteOperationFuture future = new RemoteOperationFuture(this, callable, listener, listenerHandler);
+        getAsyncExecutor().execute(future);
+        return future;
+    }
+
+    /**
+     * Sets the executor the executeAsync methods run operations on, e.g. to change how many run at once.
+     *
+     * @param executor  Executor for later calls, or null to go back to the default one with
+     *                  {@link #DEFAULT_ASYNC_THREADS} threads.
+     */
+    public static synchronized void setAsyncExecutor(ExecutorService executor) {
+        sAsyncExecutor = executor;
+    }
+
+    private static synchronized ExecutorService getAsyncExecutor() {
+        if (sAsyncExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS,
+                                                                 ASYNC_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                                                                 new LinkedBlockingQueue<Runnable>(),
+                                                                 new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull Runnable runnable) {
+                    return new Thread(runnable, "RemoteOperation-" + threadCount.incrementAndGet());
+                }
+            });
+            executor.allowCoreThreadTimeOut(true);
+            sAsyncExecutor = executor;
+        }
+        return sAsyncExecutor;
+    }
+
     /**
      * Asynchronously executes the remote operation
      * 
@@ -345,9 +448,8 @@ public abstract class RemoteOperation implements Runnable {
                         /** EOF DEPRECATED */
 
                             Log_OC.d(this, "generating new ownclound client");
-                        	OwnCloudAccount ocAccount = new OwnCloudAccount(mAccount, mContext);
                             mClient = OwnCloudClientManagerFactory.getDefaultSingleton().
-                            		getClientFor(ocAccount, mContext);
+                            		getClientFor(mAccount, mContext);
                         }
                         
                     } else {
@@ -391,6 +493,8 @@ public abstract class RemoteOperation implements Runnable {
                     } else {
                         am.clearPassword(mAccount);
                     }
+                    // the cached client still holds the erased credentials
+                    OwnCloudClientManagerFactory.getDefaultSingleton().invalidateClientFor(mAccount.name);
                     mClient = null;
                     // when repeated, the creation of a new OwnCloudClient after erasing the saved
                     // credentials will trigger the login activity
@@ -0,0 +1,119 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.operations;
+
+import android.os.Handler;
+
+import com.owncloud.android.lib.common.network.RequestAbortScope;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Pending result of a remote operation started with one of the executeAsync methods of {@link RemoteOperation}.
+ *
+ * Cancelling it aborts the HTTP request the operation is running, instead of just discarding its result.
+ */
+public class RemoteOperationFuture extends FutureTask<RemoteOperationResult> {
+
+    private final RemoteOperation operation;
+    private final RequestAbortScope abortScope;
+    private final OnRemoteOperationListener listener;
+    private final Handler listenerHandler;
+
+    RemoteOperationFuture(RemoteOperation operation, Callable<RemoteOperationResult> callable,
+                          OnRemoteOperationListener listener, Handler listenerHandler) {
+        this(operation, new RequestAbortScope(), callable, listener, listenerHandler);
+    }
+
+    private RemoteOperationFuture(RemoteOperation operation, final RequestAbortScope abortScope,
+                                  final Callable<RemoteOperationResult> callable,
+                                  OnRemoteOperationListener listener, Handler listenerHandler) {
+        super(new Callable<RemoteOperationResult>() {
+            @Override
+            public RemoteOperationResult call() throws Exception {
+                abortScope.enter();
+                try {
+                    return callable.call();
+                } finally {
+                    abortScope.exit();
+                }
+            }
+        });
+        this.operation = operation;
+        this.abortScope = abortScope;
+        this.listener = listener;
+        this.listenerHandler = listenerHandler;
+    }
+
+    public RemoteOperation getOperation() {
+        return operation;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            abortScope.abort();
+        }
+        return cancelled;
+    }
+
+    @Override
+    protected void done() {
+        if (listener == null || isCancelled()) {
+            return;
+        }
+
+        RemoteOperationResult result;
+        try {
+            result = get();
+        } catch (ExecutionException e) {
+            result = new RemoteOperationResult(toException(e.getCause()));
+        } catch (InterruptedException | CancellationException e) {
+            return;
+        }
+
+        final RemoteOperationResult resultToSend = result;
+        Runnable notification = new Runnable() {
+            @Override
+            public void run() {
+                listener.onRemoteOperationFinish(operation, resultToSend);
+            }
+        };
+        if (listenerHandler != null) {
+            listenerHandler.post(notification);
+        } else {
+            notification.run();
+        }
+    }
+
+    private static Exception toException(Throwable throwable) {
+        return throwable instanceof Exception ? (Exception) throwable : new RuntimeException(throwable);
+    }
+}
@@ -40,7 +40,9 @@ import com.owncloud.android.lib.resources.notifications.models.PushResponse;
 import org.apache.commons.httpclient.ConnectTimeoutException;
 import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpException;
+import org.apache.commons.httpclient.HttpContentTooLargeException;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.jackrabbit.webdav.DavException;
 import org.json.JSONException;
@@ -81,6 +83,11 @@ public class RemoteOperationResult implements Serializable {
     private static final long serialVersionUID = -1909603208238358633L;
     private static final String TAG = RemoteOperationResult.class.getSimpleName();
 
+    /** Error bodies longer than this are not read; server exceptions are a few hundred bytes of XML */
+    public static final int DEFAULT_MAX_ERROR_BODY_LENGTH = 16 * 1024;
+
+    private static volatile int sMaxErrorBodyLength = DEFAULT_MAX_ERROR_BODY_LENGTH;
+
     public enum ResultCode {
         OK,
         OK_SSL,
@@ -157,6 +164,9 @@ public class RemoteOperationResult implements Serializable {
     @ToString.Exclude private List<Notification> mNotificationData;
     @ToString.Exclude private PushResponse mPushResponse;
 
+    /** Body of an error response, read by the constructor and parsed once its details are asked for */
+    @ToString.Exclude private byte[] mErrorBody;
+
     /**
      * Public constructor from result code.
      * <p>
@@ -332,20 +342,7 @@ public class RemoteOperationResult implements Serializable {
 
         if (mHttpCode == HttpStatus.SC_BAD_REQUEST || mHttpCode == HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE) {
             try {
-                String bodyResponse = httpMethod.getResponseBodyAsString();
-
-                if (bodyResponse != null && bodyResponse.length() > 0) {
-                    InputStream is = new ByteArrayInputStream(bodyResponse.getBytes());
-                    ExceptionParser xmlParser = new ExceptionParser(is);
-
-                    if (xmlParser.isInvalidCharacterException()) {
-                        mCode = ResultCode.INVALID_CHARACTER_DETECT_IN_SERVER;
-                    }
-                    if (xmlParser.isVirusException()) {
-                        mCode = ResultCode.VIRUS_DETECTED;
-                        mHttpPhrase = xmlParser.getMessage();
-                    }
-                }
+                mErrorBody = readErrorBody(httpMethod);
             } catch (Exception e) {
                 Log_OC.w(TAG, "Error reading exception from server: " + e.getMessage());
                 // mCode stays as set in this(success, httpCode, headers)
@@ -353,6 +350,105 @@ public class RemoteOperationResult implements Serializable {
         }
     }
 
+    /**
+     * Reads the body of an error response if it may hold a server exception, up to
+     * {@link #sMaxErrorBodyLength} bytes. Longer bodies, and bodies that are not XML unless known to be short,
+     * like HTML pages of proxies, are discarded and their connection aborted instead of drained.
+     */
+    private static byte[] readErrorBody(HttpMethod httpMethod) throws IOException {
+        if (httpMethod.getResponseBodyAsStream() == null) {
+            return null;
+        }
+
+        int maxLength = sMaxErrorBodyLength;
+        long announcedLength = -1;
+        Header contentLength = httpMethod.getResponseHeader("Content-Length");
+        if (contentLength != null) {
+            try {
+                announcedLength = Long.parseLong(contentLength.getValue().trim());
+            } catch (NumberFormatException e) {
+                // unknown length
+            }
+        }
+
+        Header contentType = httpMethod.getResponseHeader("Content-Type");
+        if (contentType != null && !contentType.getValue().toLowerCase(Locale.US).contains("xml")) {
+            // not a server exception; releasing the connection would drain it, unless it is short
+            if (announcedLength < 0 || announcedLength > maxLength) {
+                httpMethod.abort();
+            }
+            return null;
+        }
+        if (announcedLength > maxLength) {
+            httpMethod.abort();
+            return null;
+        }
+
+        if (!(httpMethod instanceof HttpMethodBase)) {
+            return null;
+        }
+        byte[] body;
+        try {
+            // buffered in the method too, so callers can still read it with getResponseBodyAsString()
+            body = ((HttpMethodBase) httpMethod).getResponseBody(maxLength);
+        } catch (HttpContentTooLargeException e) {
+            httpMethod.abort();
+            return null;
+        }
+        return body != null && body.length > 0 ? body : null;
+    }
+
+    /**
+     * Returns the body of a response already examined by {@link #RemoteOperationResult(boolean, HttpMethod)}, e.g.
+     * to log it.
+     *
+     * @return the body, or null if it was discarded because it was too long to be read
+     */
+    public static String getResponseBodyAsString(HttpMethod httpMethod) {
+        if (httpMethod instanceof HttpMethodBase && ((HttpMethodBase) httpMethod).isAborted()) {
+            return null;
+        }
+        try {
+            return httpMethod.getResponseBodyAsString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Interprets the server exception in the body of an error response, the first time the result code or
+     * phrase is asked for.
+     */
+    private synchronized void parseErrorBody() {
+        byte[] body = mErrorBody;
+        if (body == null) {
+            return;
+        }
+        mErrorBody = null;
+
+        try {
+            ExceptionParser xmlParser = new ExceptionParser(new ByteArrayInputStream(body));
+
+            if (xmlParser.isInvalidCharacterException()) {
+                mCode = ResultCode.INVALID_CHARACTER_DETECT_IN_SERVER;
+            }
+            if (xmlParser.isVirusException()) {
+                mCode = ResultCode.VIRUS_DETECTED;
+                mHttpPhrase = xmlParser.getMessage();
+            }
+        } catch (Exception e) {
+            Log_OC.w(TAG, "Error reading exception from server: " + e.getMessage());
+            // mCode stays as set in this(success, httpCode, headers)
+        }
+    }
+
+    /**
+     * Sets the maximum length of error response bodies read to look for server exceptions.
+     */
+    public static void setMaxErrorBodyLength(int maxErrorBodyLength) {
+        sMaxErrorBodyLength = maxErrorBodyLength;
+    }
+
     /**
      * Public constructor from separate elements of an HTTP or DAV response.
      *
@@ -522,10 +618,12 @@ public class RemoteOperationResult implements Serializable {
     }
 
     public String getHttpPhrase() {
+        parseErrorBody();
         return mHttpPhrase;
     }
 
     public ResultCode getCode() {
+        parseErrorBody();
         return mCode;
     }
 
@@ -561,6 +659,7 @@ public class RemoteOperationResult implements Serializable {
 
     @ToString.Include
     public String getLogMessage() {
+        parseErrorBody();
 
         if (mException != null) {
             if (mException instanceof OperationCancelledException) {
@@ -28,12 +28,15 @@
 package com.owncloud.android.lib.common.utils;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.MultiStatusReader;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.resources.files.model.RemoteFile;
 
 import org.apache.jackrabbit.webdav.MultiStatus;
 import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -87,6 +90,43 @@ public class WebDavFileUtils {
         return mFolderAndFiles;
     }
 
+    /**
+     * Read the data retrieved from the server about the contents of the target folder, one response at a time
+     *
+     * @param remoteData Reader over the response got from the server with the data of the target
+     *                   folder and its direct children.
+     * @param client     Client instance to the remote server where the data were
+     *                   retrieved.
+     * @return content of the target folder
+     */
+    public ArrayList<Object> readData(MultiStatusReader remoteData,
+                                      OwnCloudClient client,
+                                      boolean isReadFolderOperation,
+                                      boolean isSearchOperation,
+                                      String userId) throws IOException, XmlPullParserException {
+        ArrayList<Object> mFolderAndFiles = new ArrayList<>();
+
+        MultiStatusResponse response = remoteData.next();
+        if (isReadFolderOperation && response != null) {
+            mFolderAndFiles.add(fillOCFile(new WebdavEntry(response, client.getWebdavUri().getPath())));
+            response = remoteData.next();
+        }
+
+        String stripString = client.getWebdavUri().getPath();
+        if (isSearchOperation && userId != null) {
+            stripString = stripString.substring(0, stripString.lastIndexOf("/")) + "/dav/files/" + userId;
+            stripString = stripString.replaceAll(" ", "%20");
+        }
+
+        // loop to update every child
+        while (response != null) {
+            mFolderAndFiles.add(fillOCFile(new WebdavEntry(response, stripString)));
+            response = remoteData.next();
+        }
+
+        return mFolderAndFiles;
+    }
+
     /**
      * Creates and populates a new {@link RemoteFile} object with the data read from the server.
      *
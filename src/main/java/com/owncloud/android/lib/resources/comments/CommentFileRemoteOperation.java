@@ -99,7 +99,7 @@ public class CommentFileRemoteOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(isSuccess(status), postMethod);
 
-            client.exhaustResponse(postMethod.getResponseBodyAsStream());
+            client.exhaustResponse(postMethod);
         } catch (IOException e) {
             result = new RemoteOperationResult(e);
             Log.e(TAG, "Post comment to file with id " + fileId + " failed: " + result.getLogMessage(), e);
@@ -77,7 +77,7 @@ public class MarkCommentsAsReadRemoteOperation extends RemoteOperation {
             if (isSuccess) {
                 result = new RemoteOperationResult(true, status, propPatchMethod.getResponseHeaders());
             } else {
-                client.exhaustResponse(propPatchMethod.getResponseBodyAsStream());
+                client.exhaustResponse(propPatchMethod);
                 result = new RemoteOperationResult(false, status, propPatchMethod.getResponseHeaders());
             }
         } catch (IOException e) {
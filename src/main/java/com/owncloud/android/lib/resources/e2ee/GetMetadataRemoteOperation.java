@@ -95,7 +95,7 @@ public class GetMetadataRemoteOperation extends RemoteOperation {
                 result.setData(metadataArray);
             } else {
                 result = new RemoteOperationResult(false, getMethod);
-                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                client.exhaustResponse(getMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -108,7 +108,7 @@ public class LockFileRemoteOperation extends RemoteOperation {
                 result.setData(tokenArray);
             } else {
                 result = new RemoteOperationResult(false, postMethod);
-                client.exhaustResponse(postMethod.getResponseBodyAsStream());
+                client.exhaustResponse(postMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -99,7 +99,7 @@ public class StoreMetadataRemoteOperation extends RemoteOperation {
                 result.setData(keys);
             } else {
                 result = new RemoteOperationResult(false, postMethod);
-                client.exhaustResponse(postMethod.getResponseBodyAsStream());
+                client.exhaustResponse(postMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -97,7 +97,7 @@ public class ToggleEncryptionRemoteOperation extends RemoteOperation {
                 result = new RemoteOperationResult(true, method);
             } else {
                 result = new RemoteOperationResult(false, method);
-                client.exhaustResponse(method.getResponseBodyAsStream());
+                client.exhaustResponse(method);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -76,7 +76,7 @@ public class UnlockFileRemoteOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(status == HttpStatus.SC_OK, deleteMethod);
             
-            client.exhaustResponse(deleteMethod.getResponseBodyAsStream());
+            client.exhaustResponse(deleteMethod);
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
             Log_OC.e(TAG, "Unlock file with id " + localId + " failed: " + result.getLogMessage(),
@@ -112,7 +112,7 @@ public class UpdateMetadataRemoteOperation extends RemoteOperation {
                 result.setData(keys);
             } else {
                 result = new RemoteOperationResult(false, putMethod);
-                client.exhaustResponse(putMethod.getResponseBodyAsStream());
+                client.exhaustResponse(putMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -0,0 +1,124 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import com.owncloud.android.lib.resources.status.OCCapability;
+
+/**
+ * Computes the size of the next chunk of a chunked upload from the throughput measured on the previous ones.
+ *
+ * Starts with a small chunk and grows it, at most doubling each time, until a chunk takes about
+ * {@link #TARGET_CHUNK_DURATION_MS} to upload, never exceeding the maximum size. A failed chunk halves the size, so
+ * flaky links lose less work per failure. An instance can be shared among several uploads to keep what it learned.
+ *
+ * The maximum size is not read from the server by this class: callers have to build the sizer with
+ * {@link #forCapability(OCCapability)} (or pass the advertised limit themselves) to keep chunks within what the
+ * server accepts; otherwise chunks can grow up to {@link #DEFAULT_MAX_CHUNK_SIZE}.
+ */
+public class AdaptiveChunkSizer {
+
+    public static final long MIN_CHUNK_SIZE = 512000;
+    public static final long DEFAULT_MAX_CHUNK_SIZE = 102400000;
+    public static final long TARGET_CHUNK_DURATION_MS = 10000;
+
+    private final long minChunkSize;
+    private final long maxChunkSize;
+    private long chunkSize;
+
+    public AdaptiveChunkSizer() {
+        this(0);
+    }
+
+    /**
+     * @param serverMaxChunkSize maximum chunk size advertised by the server, 0 if unknown
+     */
+    public AdaptiveChunkSizer(long serverMaxChunkSize) {
+        this(ChunkedFileUploadRemoteOperation.CHUNK_SIZE_MOBILE,
+             MIN_CHUNK_SIZE,
+             serverMaxChunkSize > 0 ? serverMaxChunkSize : DEFAULT_MAX_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a sizer bounded by the maximum chunk size advertised in the capabilities of the server.
+     *
+     * @param capability capabilities of the server the chunks are uploaded to
+     */
+    public static AdaptiveChunkSizer forCapability(OCCapability capability) {
+        return new AdaptiveChunkSizer(capability.getFilesChunkedUploadMaxSize());
+    }
+
+    public AdaptiveChunkSizer(long initialChunkSize, long minChunkSize, long maxChunkSize) {
+        if (minChunkSize <= 0) {
+            throw new IllegalArgumentException("Min chunk size must be greater than zero");
+        }
+        if (maxChunkSize < minChunkSize) {
+            throw new IllegalArgumentException("Max chunk size must not be smaller than min chunk size");
+        }
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.chunkSize = clamp(initialChunkSize);
+    }
+
+    /**
+     * @return sizer that always returns the given chunk size
+     */
+    public static AdaptiveChunkSizer fixed(long chunkSize) {
+        return new AdaptiveChunkSizer(chunkSize, chunkSize, chunkSize);
+    }
+
+    public synchronized long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Adapts the chunk size to the throughput of an uploaded chunk.
+     *
+     * Chunks much smaller than the current size (gaps left by a previous upload, the tail of the file) are
+     * dominated by the round trip time and are ignored.
+     *
+     * @param length     bytes of the chunk
+     * @param durationMs time in milliseconds from sending the request until the server acknowledged it
+     */
+    public synchronized void onChunkUploaded(long length, long durationMs) {
+        if (length < chunkSize / 2) {
+            return;
+        }
+
+        long targetChunkSize = length * TARGET_CHUNK_DURATION_MS / Math.max(1, durationMs);
+        targetChunkSize = Math.min(targetChunkSize, chunkSize * 2);
+        targetChunkSize = Math.max(targetChunkSize, chunkSize / 2);
+
+        chunkSize = clamp(targetChunkSize);
+    }
+
+    public synchronized void onChunkFailed() {
+        chunkSize = clamp(chunkSize / 2);
+    }
+
+    private long clamp(long size) {
+        return Math.max(minChunkSize, Math.min(maxChunkSize, size));
+    }
+}
@@ -26,12 +26,13 @@ package com.owncloud.android.lib.resources.files;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.network.ChunkFromFileChannelRequestEntity;
-import com.owncloud.android.lib.common.network.ProgressiveDataTransfer;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.lib.resources.status.OCCapability;
 
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.methods.PutMethod;
@@ -46,25 +47,124 @@ import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.math.BigInteger;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
-
-
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Uploads a file in chunks to the new (dav/uploads) chunking endpoint and assembles it with a final MOVE.
+ *
+ * Up to {@link #getParallelUploads()} chunk PUTs are kept in flight at the same time; all of them share the
+ * connection manager of the received {@link OwnCloudClient}, so its per-host limit caps the effective parallelism.
+ *
+ * The size of every chunk is taken from an {@link AdaptiveChunkSizer} when it is cut from the missing ranges of
+ * the file, so chunks of an upload can have different sizes; chunks already on the server are reused whatever
+ * their size. The constructors taking {@code onWifiConnection} keep a fixed chunk size; to adapt it, pass a sizer
+ * built with {@link AdaptiveChunkSizer#forCapability(OCCapability)} so chunks never exceed the server limit.
+ */
 public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation {
 
     public static final long CHUNK_SIZE_MOBILE = 1024000;
     public static final long CHUNK_SIZE_WIFI = 10240000;
+    public static final int DEFAULT_PARALLEL_UPLOADS = 1;
     private static final String OC_CHUNK_X_OC_MTIME_HEADER = "X-OC-Mtime";
     private static final String TAG = ChunkedFileUploadRemoteOperation.class.getSimpleName();
-    private final boolean onWifiConnection;
+    private final AdaptiveChunkSizer chunkSizer;
+    private final int parallelUploads;
+    private final Set<PutMethod> activePutMethods = new HashSet<>();
+    private UploadSessionKeyStrategy sessionKeyStrategy = UploadSessionKeyStrategy.FILE_METADATA;
 
     public ChunkedFileUploadRemoteOperation(String storagePath, String remotePath, String mimeType, String requiredEtag,
                                             String lastModificationTimestamp,
                                             boolean onWifiConnection) {
+        this(storagePath,
+             remotePath,
+             mimeType,
+             requiredEtag,
+             lastModificationTimestamp,
+             onWifiConnection,
+             DEFAULT_PARALLEL_UPLOADS);
+    }
+
+    /**
+     * @param parallelUploads maximum number of chunks uploaded at the same time, must be at least 1
+     */
+    public ChunkedFileUploadRemoteOperation(String storagePath, String remotePath, String mimeType, String requiredEtag,
+                                            String lastModificationTimestamp,
+                                            boolean onWifiConnection,
+                                            int parallelUploads) {
+        this(storagePath,
+             remotePath,
+             mimeType,
+             requiredEtag,
+             lastModificationTimestamp,
+             AdaptiveChunkSizer.fixed(onWifiConnection ? CHUNK_SIZE_WIFI : CHUNK_SIZE_MOBILE),
+             parallelUploads);
+    }
+
+    /**
+     * @param chunkSizer      decides the size of each chunk; can be shared among uploads to the same server
+     * @param parallelUploads maximum number of chunks uploaded at the same time, must be at least 1
+     */
+    public ChunkedFileUploadRemoteOperation(String storagePath, String remotePath, String mimeType, String requiredEtag,
+                                            String lastModificationTimestamp,
+                                            AdaptiveChunkSizer chunkSizer,
+                                            int parallelUploads) {
         super(storagePath, remotePath, mimeType, requiredEtag, lastModificationTimestamp);
-        this.onWifiConnection = onWifiConnection;
+        if (chunkSizer == null) {
+            throw new IllegalArgumentException("Chunk sizer may not be null");
+        }
+        if (parallelUploads < 1) {
+            throw new IllegalArgumentException("Parallel uploads must be at least 1");
+        }
+        this.chunkSizer = chunkSizer;
+        this.parallelUploads = parallelUploads;
+    }
+
+    public int getParallelUploads() {
+        return parallelUploads;
+    }
+
+    /**
+     * Not used when a checksum of the whole file is computed, see {@link #setChecksumType(String)}: the upload
+     * folder is then named after the checksum.
+     *
+     * @param sessionKeyStrategy names the upload folder on the server,
+     *                           {@link UploadSessionKeyStrategy#FILE_METADATA} by default
+     */
+    public void setSessionKeyStrategy(UploadSessionKeyStrategy sessionKeyStrategy) {
+        if (sessionKeyStrategy == null) {
+            throw new IllegalArgumentException("Session key strategy may not be null");
+        }
+        this.sessionKeyStrategy = sessionKeyStrategy;
+    }
+
+    /**
+     * @return 32 hex characters, changing with any byte of the content
+     */
+    private static String checksumSessionKey(String checksum, String remotePath) throws NoSuchAlgorithmException {
+        MessageDigest messageDigest = MessageDigest.getInstance("MD5");
+        messageDigest.update(remotePath.getBytes(Charset.forName("UTF-8")));
+        messageDigest.update(checksum.getBytes(Charset.forName("UTF-8")));
+
+        return String.format(Locale.US, "%032x", new BigInteger(1, messageDigest.digest()));
     }
 
     @Override
@@ -79,7 +179,15 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
             client.getParams().setParameter(HttpMethodParams.RETRY_HANDLER,
                                             new DefaultHttpMethodRetryHandler(0, false));
 
-            String uploadFolderUri = client.getUploadUri() + "/" + client.getUserId() + "/" + FileUtils.md5Sum(file);
+            // skip the transfer if the server already holds the same content
+            RemoteOperationResult existingContentResult = checkExistingContent(client);
+            if (existingContentResult != null) {
+                return existingContentResult;
+            }
+
+            String sessionKey = checksum != null ? checksumSessionKey(checksum, remotePath) :
+                sessionKeyStrategy.getSessionKey(file, remotePath);
+            String uploadFolderUri = client.getUploadUri() + "/" + client.getUserId() + "/" + sessionKey;
 
             // create folder
             MkColMethod createFolder = new MkColMethod(uploadFolderUri);
@@ -110,41 +218,47 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
                 }
             }
 
-            // chunk length
-            long chunkSize;
-            if (onWifiConnection) {
-                chunkSize = CHUNK_SIZE_WIFI;
-            } else {
-                chunkSize = CHUNK_SIZE_MOBILE;
-            }
+            // check for missing ranges; they are cut into chunks while uploading, as the chunk size may change
+            Collections.sort(chunksOnServer, new Comparator<Chunk>() {
+                @Override
+                public int compare(Chunk chunk1, Chunk chunk2) {
+                    // Long.compare needs API 19
+                    return chunk1.start < chunk2.start ? -1 : (chunk1.start == chunk2.start ? 0 : 1);
+                }
+            });
+            List<Chunk> missingRanges = checkMissingChunks(chunksOnServer, file.length(), file.length() + 1);
 
-            // check for missing chunks
-            List<Chunk> missingChunks = checkMissingChunks(chunksOnServer, file.length(), chunkSize);
+            // progress is aggregated over all chunks, starting with what is already on the server
+            long missingLength = 0;
+            for (Chunk missingRange : missingRanges) {
+                missingLength += missingRange.length();
+            }
+            ChunkProgressAggregator progressAggregator = new ChunkProgressAggregator(
+                Math.max(0, file.length() - missingLength), file.length());
 
             // upload chunks
-            for (Chunk missingChunk : missingChunks) {
-                RemoteOperationResult chunkResult = uploadChunk(client, uploadFolderUri, missingChunk);
-                
-                if (!chunkResult.isSuccess()) {
-                    return chunkResult;
-                }
-
-                if (cancellationRequested.get()) {
-                    return new RemoteOperationResult(new OperationCancelledException());
-                }
+            RemoteOperationResult chunksResult = uploadChunks(client,
+                                                              uploadFolderUri,
+                                                              new ChunkDispenser(missingRanges, chunkSizer),
+                                                              progressAggregator);
+            if (chunksResult != null) {
+                return chunksResult;
             }
 
-            // assemble
+            // assemble, only after every chunk has been acknowledged
             String destinationUri = client.getNewWebdavUri() + "/files/" + client.getUserId() +
                     WebdavUtils.encodePath(remotePath);
             String originUri = uploadFolderUri + "/.file";
             MoveMethod moveMethod = new MoveMethod(originUri, destinationUri, true);
             moveMethod.addRequestHeader(OC_CHUNK_X_OC_MTIME_HEADER, String.valueOf(file.lastModified() / 1000));
+            if (checksum != null) {
+                moveMethod.addRequestHeader(OC_CHECKSUM_HEADER, checksum);
+            }
             int moveResult = client.executeMethod(moveMethod);
 
             result = new RemoteOperationResult(isSuccess(moveResult), moveMethod);
         } catch (Exception e) {
-            if (putMethod != null && putMethod.isAborted()) {
+            if (cancellationRequested.get()) {
                 result = new RemoteOperationResult(new OperationCancelledException());
 
             } else {
@@ -157,6 +271,95 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
         return result;
     }
 
+    /**
+     * Uploads all missing chunks, keeping at most {@link #parallelUploads} of them in flight.
+     *
+     * @return null if all chunks were uploaded, otherwise the result of the first failing chunk
+     */
+    private RemoteOperationResult uploadChunks(final OwnCloudClient client,
+                                               final String uploadFolderUri,
+                                               final ChunkDispenser chunkDispenser,
+                                               final ChunkProgressAggregator progressAggregator)
+            throws IOException, InterruptedException {
+
+        if (parallelUploads == 1) {
+            return uploadChunksFrom(client, uploadFolderUri, chunkDispenser, progressAggregator);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelUploads);
+        CompletionService<RemoteOperationResult> completionService = new ExecutorCompletionService<>(executor);
+
+        try {
+            for (int i = 0; i < parallelUploads; i++) {
+                completionService.submit(new Callable<RemoteOperationResult>() {
+                    @Override
+                    public RemoteOperationResult call() throws Exception {
+                        return uploadChunksFrom(client, uploadFolderUri, chunkDispenser, progressAggregator);
+                    }
+                });
+            }
+
+            for (int i = 0; i < parallelUploads; i++) {
+                RemoteOperationResult workerResult;
+                try {
+                    workerResult = completionService.take().get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cancellationRequested.get()) {
+                        workerResult = new RemoteOperationResult(new OperationCancelledException());
+                    } else if (cause instanceof Exception) {
+                        workerResult = new RemoteOperationResult((Exception) cause);
+                    } else {
+                        workerResult = new RemoteOperationResult(e);
+                    }
+                }
+
+                if (workerResult != null) {
+                    return workerResult;
+                }
+            }
+        } finally {
+            // also reached when interrupted while waiting, e.g. by RemoteOperationFuture.cancel: interrupting the
+            // workers does not stop blocking HttpClient I/O, their requests are not attached to the caller's
+            // abort scope either
+            chunkDispenser.stop();
+            abortActivePutMethods();
+            executor.shutdownNow();
+        }
+
+        return null;
+    }
+
+    /**
+     * Uploads chunks taken from the dispenser until it runs out of them; used by every upload thread.
+     *
+     * @return null if all taken chunks were uploaded, otherwise the result of the failing one
+     */
+    private RemoteOperationResult uploadChunksFrom(OwnCloudClient client,
+                                                   String uploadFolderUri,
+                                                   ChunkDispenser chunkDispenser,
+                                                   ChunkProgressAggregator progressAggregator) throws IOException {
+        Chunk chunk;
+        while ((chunk = chunkDispenser.next()) != null) {
+            if (cancellationRequested.get()) {
+                return new RemoteOperationResult(new OperationCancelledException());
+            }
+
+            RemoteOperationResult chunkResult = uploadChunk(client, uploadFolderUri, chunk, progressAggregator);
+
+            if (!chunkResult.isSuccess()) {
+                chunkDispenser.stop();
+                return chunkResult;
+            }
+        }
+
+        if (cancellationRequested.get()) {
+            return new RemoteOperationResult(new OperationCancelledException());
+        }
+
+        return null;
+    }
+
     List<Chunk> checkMissingChunks(List<Chunk> chunks, long length, long chunkSize) {
         List<Chunk> missingChunks = new ArrayList<>();
 
@@ -199,7 +402,10 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
         return null;
     }
 
-    private RemoteOperationResult uploadChunk(OwnCloudClient client, String uploadFolderUri, Chunk chunk)
+    private RemoteOperationResult uploadChunk(OwnCloudClient client,
+                                              String uploadFolderUri,
+                                              Chunk chunk,
+                                              OnDatatransferProgressListener progressListener)
             throws IOException {
         int status;
         RemoteOperationResult result;
@@ -209,31 +415,41 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
 
         FileChannel channel = null;
         RandomAccessFile raf = null;
+        PutMethod chunkPutMethod = null;
 
         File file = new File(localPath);
 
         try {
             raf = new RandomAccessFile(file, "r");
             channel = raf.getChannel();
-            entity = new ChunkFromFileChannelRequestEntity(channel, mimeType, chunk.start, chunk.length(), file);
-            
-            synchronized (dataTransferListeners) {
-                ((ProgressiveDataTransfer) entity).addDataTransferProgressListeners(dataTransferListeners);
-            }
+            ChunkFromFileChannelRequestEntity chunkEntity = new ChunkFromFileChannelRequestEntity(channel,
+                                                                                                  mimeType,
+                                                                                                  chunk.start,
+                                                                                                  chunk.length(),
+                                                                                                  file);
+            chunkEntity.addDataTransferProgressListener(progressListener);
 
             String chunkUri = uploadFolderUri + "/" + startString + "-" + endString;
 
-            if (putMethod != null) {
-                putMethod.releaseConnection(); // let the connection available for other methods
-            }
+            chunkPutMethod = createPutMethod(chunkUri, chunkEntity);
 
-            putMethod = createPutMethod(chunkUri);
+            long startTime = System.currentTimeMillis();
+            try {
+                status = client.executeMethod(chunkPutMethod);
+            } catch (IOException e) {
+                chunkSizer.onChunkFailed();
+                throw e;
+            }
 
-            status = client.executeMethod(putMethod);
+            if (isSuccess(status)) {
+                chunkSizer.onChunkUploaded(chunk.length(), System.currentTimeMillis() - startTime);
+            } else {
+                chunkSizer.onChunkFailed();
+            }
 
-            result = new RemoteOperationResult(isSuccess(status), putMethod);
+            result = new RemoteOperationResult(isSuccess(status), chunkPutMethod);
 
-            client.exhaustResponse(putMethod.getResponseBodyAsStream());
+            client.exhaustResponse(chunkPutMethod);
             Log_OC.d(TAG, "Upload of " + localPath + " to " + remotePath + ", chunk from " + startString + " to " +
                     endString + " size: "  + chunk.length() + ", HTTP result status " + status);
         } finally {
@@ -250,19 +466,115 @@ public class ChunkedFileUploadRemoteOperation extends UploadFileRemoteOperation
                     Log_OC.e(TAG, "Error closing file access!", e);
                 }
             }
-            if (putMethod != null)
-                putMethod.releaseConnection(); // let the connection available for other methods
+            if (chunkPutMethod != null) {
+                synchronized (activePutMethods) {
+                    activePutMethods.remove(chunkPutMethod);
+                }
+                chunkPutMethod.releaseConnection(); // let the connection available for other methods
+            }
         }
         return result;
     }
 
-    private PutMethod createPutMethod(String uriPrefix) {
-        putMethod = new PutMethod(uriPrefix);
-        putMethod.setRequestEntity(entity);
+    private PutMethod createPutMethod(String uriPrefix, ChunkFromFileChannelRequestEntity chunkEntity) {
+        PutMethod chunkPutMethod = new PutMethod(uriPrefix);
+        chunkPutMethod.setRequestEntity(chunkEntity);
+        chunkPutMethod.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
+
+        synchronized (activePutMethods) {
+            activePutMethods.add(chunkPutMethod);
+            putMethod = chunkPutMethod;
+        }
+
         if (cancellationRequested.get()) {
-            putMethod.abort(); // next method will throw an exception
+            chunkPutMethod.abort(); // next method will throw an exception
+        }
+
+        return chunkPutMethod;
+    }
+
+    private void abortActivePutMethods() {
+        synchronized (activePutMethods) {
+            for (PutMethod activePutMethod : activePutMethods) {
+                activePutMethod.abort();
+            }
         }
+    }
 
-        return putMethod;
+    @Override
+    public void cancel() {
+        super.cancel();
+        abortActivePutMethods();
+    }
+
+    /**
+     * Cuts the missing ranges of the file into chunks, asking the chunk sizer for the size of each one at the moment
+     * it is taken. Shared by all the upload threads.
+     */
+    static class ChunkDispenser {
+        private final List<Chunk> missingRanges;
+        private final AdaptiveChunkSizer chunkSizer;
+        private int rangeIndex = 0;
+        private long position = 0;
+        private boolean stopped = false;
+
+        ChunkDispenser(List<Chunk> missingRanges, AdaptiveChunkSizer chunkSizer) {
+            this.missingRanges = missingRanges;
+            this.chunkSizer = chunkSizer;
+        }
+
+        /**
+         * @return next chunk to upload, or null if there is none left or the dispenser was stopped
+         */
+        synchronized Chunk next() {
+            while (!stopped && rangeIndex < missingRanges.size()) {
+                Chunk range = missingRanges.get(rangeIndex);
+                position = Math.max(position, range.start);
+
+                if (position <= range.end) {
+                    long end = Math.min(range.end, position + chunkSizer.getChunkSize() - 1);
+                    Chunk chunk = new Chunk(position, end);
+                    position = end + 1;
+                    return chunk;
+                }
+
+                rangeIndex++;
+            }
+            return null;
+        }
+
+        synchronized void stop() {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Sums the progress of all chunks of the file, which can be written concurrently, and forwards it to the
+     * listeners registered in the operation.
+     */
+    private class ChunkProgressAggregator implements OnDatatransferProgressListener {
+        private final AtomicLong transferred;
+        private final long totalToTransfer;
+
+        ChunkProgressAggregator(long alreadyTransferred, long totalToTransfer) {
+            this.transferred = new AtomicLong(alreadyTransferred);
+            this.totalToTransfer = totalToTransfer;
+        }
+
+        @Override
+        public void onTransferProgress(long progressRate,
+                                       long totalTransferredSoFar,
+                                       long totalToTransfer,
+                                       String fileAbsoluteName) {
+            // repeated writes of the same chunk (e.g. after an auth challenge) must not exceed the file size
+            long transferredSoFar = Math.min(transferred.addAndGet(progressRate), this.totalToTransfer);
+
+            synchronized (dataTransferListeners) {
+                for (OnDatatransferProgressListener listener : dataTransferListeners) {
+                    listener.onTransferProgress(progressRate, transferredSoFar, this.totalToTransfer,
+                                                fileAbsoluteName);
+                }
+            }
+        }
     }
 }
@@ -114,7 +114,7 @@ public class CopyFileRemoteOperation extends RemoteOperation {
             } else if (status == HttpStatus.SC_PRECONDITION_FAILED && !mOverwrite) {
 
                 result = new RemoteOperationResult(ResultCode.INVALID_OVERWRITE);
-                client.exhaustResponse(copyMethod.getResponseBodyAsStream());
+                client.exhaustResponse(copyMethod);
 
 
                 /// for other errors that could be explicitly handled, check first:
@@ -122,7 +122,7 @@ public class CopyFileRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(isSuccess(status), copyMethod);
-                client.exhaustResponse(copyMethod.getResponseBodyAsStream());
+                client.exhaustResponse(copyMethod);
             }
 
             Log.i(TAG, "Copy " + mSrcRemotePath + " to " + mTargetRemotePath + ": " + result.getLogMessage());
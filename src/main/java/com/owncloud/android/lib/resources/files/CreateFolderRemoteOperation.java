@@ -100,7 +100,7 @@ public class CreateFolderRemoteOperation extends RemoteOperation {
             }
             
             Log_OC.d(TAG, "Create directory " + mRemotePath + ": " + result.getLogMessage());
-            client.exhaustResponse(mkCol.getResponseBodyAsStream());
+            client.exhaustResponse(mkCol);
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
             Log_OC.e(TAG, "Create directory " + mRemotePath + ": " + result.getLogMessage(), e);
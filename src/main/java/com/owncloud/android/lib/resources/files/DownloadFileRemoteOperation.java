@@ -37,8 +37,11 @@ import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.GetMethod;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Date;
 import java.util.HashSet;
@@ -49,6 +52,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 /**
  * Remote operation performing the download of a remote file in the ownCloud server.
  *
+ * If a download is interrupted, the partial file is kept together with the ETag of the remote file, and the next
+ * download of the same file only requests the missing bytes through a Range request; the If-Range condition makes
+ * the server send the whole file again if it changed meanwhile.
+ *
  * @author David A. Velasco
  * @author masensio
  */
@@ -56,14 +63,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class DownloadFileRemoteOperation extends RemoteOperation {
 
     private static final String TAG = DownloadFileRemoteOperation.class.getSimpleName();
-
-    private Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<OnDatatransferProgressListener>();
-    private final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
-    private long mModificationTimestamp = 0;
-    private String mEtag = "";
+    private static final String RANGE_HEADER = "Range";
+    private static final String IF_RANGE_HEADER = "If-Range";
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    private static final String ETAG_HEADER = "ETag";
+    private static final String RESUME_ETAG_SUFFIX = ".etag";
+
+    final Set<OnDatatransferProgressListener> mDataTransferListeners = new HashSet<OnDatatransferProgressListener>();
+    final AtomicBoolean mCancellationRequested = new AtomicBoolean(false);
+    long mModificationTimestamp = 0;
+    String mEtag = "";
     private GetMethod mGet;
 
-    private String mRemotePath;
+    final String mRemotePath;
     private String mLocalFolderPath;
 
     public DownloadFileRemoteOperation(String remotePath, String localFolderPath) {
@@ -96,26 +108,73 @@ public class DownloadFileRemoteOperation extends RemoteOperation {
     }
 
 
-    protected int downloadFile(OwnCloudClient client, File targetFile) throws
-            IOException {
-        int status = -1;
+    protected int downloadFile(OwnCloudClient client, File targetFile) throws IOException,
+            OperationCancelledException {
+        int status = downloadFileOnce(client, targetFile);
+        if (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE) {
+            // the partial file did not match the remote one anymore and was discarded; start from scratch
+            status = downloadFileOnce(client, targetFile);
+        }
+        return status;
+    }
+
+    private int downloadFileOnce(OwnCloudClient client, File targetFile) throws IOException,
+            OperationCancelledException {
+        int status;
         boolean savedFile = false;
         mGet = new GetMethod(client.getWebdavUri() + WebdavUtils.encodePath(mRemotePath));
         Iterator<OnDatatransferProgressListener> it = null;
 
+        File resumeEtagFile = getResumeEtagFile(targetFile);
+        String resumeEtag = readResumeEtag(resumeEtagFile);
+        long resumeOffset = 0;
+        if (resumeEtag != null && targetFile.length() > 0) {
+            resumeOffset = targetFile.length();
+            mGet.addRequestHeader(RANGE_HEADER, "bytes=" + resumeOffset + "-");
+            mGet.addRequestHeader(IF_RANGE_HEADER, resumeEtag);
+        }
+
         FileOutputStream fos = null;
         try {
             status = client.executeMethod(mGet);
+
+            if (status == HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE && resumeOffset > 0) {
+                // partial file does not match the remote one anymore
+                client.exhaustResponse(mGet);
+                discardPartialDownload(targetFile);
+                return status;
+            }
+
+            if (status == HttpStatus.SC_PARTIAL_CONTENT && getRangeStart(mGet) != resumeOffset) {
+                // unexpected range; the partial file cannot be trusted
+                client.exhaustResponse(mGet);
+                discardPartialDownload(targetFile);
+                throw new IOException("Server answered range " + mGet.getResponseHeader(CONTENT_RANGE_HEADER) +
+                                          " to a request starting at " + resumeOffset);
+            }
+
             if (isSuccess(status)) {
+                // 200 means the whole file comes again, either because no range was requested or because the
+                // remote file changed; 206 means the requested remaining bytes come
+                boolean append = status == HttpStatus.SC_PARTIAL_CONTENT;
+                long transferred = append ? resumeOffset : 0;
+
                 targetFile.createNewFile();
                 BufferedInputStream bis = new BufferedInputStream(mGet.getResponseBodyAsStream());
-                fos = new FileOutputStream(targetFile);
-                long transferred = 0;
+                fos = new FileOutputStream(targetFile, append);
 
                 Header contentLength = mGet.getResponseHeader("Content-Length");
                 long totalToTransfer = (contentLength != null &&
                     contentLength.getValue().length() > 0) ?
-                    Long.parseLong(contentLength.getValue()) : 0;
+                    Long.parseLong(contentLength.getValue()) + transferred : 0;
+
+                // keep the ETag of the file so that an interrupted download can be resumed
+                Header etag = mGet.getResponseHeader(ETAG_HEADER);
+                if (etag != null && !etag.getValue().startsWith("W/")) {
+                    writeResumeEtag(resumeEtagFile, etag.getValue());
+                } else {
+                    resumeEtagFile.delete();
+                }
 
                 byte[] bytes = new byte[4096];
                 int readResult = 0;
@@ -147,6 +206,7 @@ public class DownloadFileRemoteOperation extends RemoteOperation {
                 
                 if (transferred == totalToTransfer || transferEncoding) {  
                     savedFile = true;
+                    resumeEtagFile.delete();
                     Header modificationTime = mGet.getResponseHeader("Last-Modified");
                     if (modificationTime == null) {
                         modificationTime = mGet.getResponseHeader("last-modified");
@@ -164,19 +224,22 @@ public class DownloadFileRemoteOperation extends RemoteOperation {
                     }
 
                 } else {
-                    client.exhaustResponse(mGet.getResponseBodyAsStream());
-                    // TODO some kind of error control!
+                    client.exhaustResponse(mGet);
+                    throw new IOException("Download of " + mRemotePath + " incomplete: " + transferred + " of " +
+                                              totalToTransfer + " bytes");
                 }
 
             } else {
-                client.exhaustResponse(mGet.getResponseBodyAsStream());
+                client.exhaustResponse(mGet);
             }
 
-        } catch (Exception e) {
-          Log_OC.e(TAG, e.getMessage());  
+        } catch (IOException | OperationCancelledException e) {
+            Log_OC.e(TAG, e.getMessage());
+            throw e;
         } finally {
             if (fos != null) fos.close();
-            if (!savedFile && targetFile.exists()) {
+            if (!savedFile && targetFile.exists() && !resumeEtagFile.exists()) {
+                // without ETag the partial file cannot be resumed
                 targetFile.delete();
             }
             mGet.releaseConnection();    // let the connection available for other methods
@@ -184,11 +247,86 @@ public class DownloadFileRemoteOperation extends RemoteOperation {
         return status;
     }
 
-    private boolean isSuccess(int status) {
-        return (status == HttpStatus.SC_OK);
+    /**
+     * Deletes a partial download together with the ETag kept to resume it, so a stale ETag is never paired with
+     * another file later downloaded to the same path.
+     */
+    protected void discardPartialDownload(File targetFile) {
+        targetFile.delete();
+        getResumeEtagFile(targetFile).delete();
+    }
+
+    private File getResumeEtagFile(File targetFile) {
+        return new File(targetFile.getPath() + RESUME_ETAG_SUFFIX);
+    }
+
+    /**
+     * @return first byte of the Content-Range of a partial response, -1 if missing or malformed
+     */
+    private long getRangeStart(GetMethod get) {
+        Header contentRange = get.getResponseHeader(CONTENT_RANGE_HEADER);
+        if (contentRange == null) {
+            return -1;
+        }
+
+        // bytes <first>-<last>/<total>
+        String value = contentRange.getValue().trim();
+        int start = value.indexOf(' ') + 1;
+        int end = value.indexOf('-', start);
+        try {
+            return Long.parseLong(value.substring(start, end).trim());
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    private String readResumeEtag(File resumeEtagFile) {
+        if (!resumeEtagFile.exists()) {
+            return null;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new FileReader(resumeEtagFile));
+            String etag = reader.readLine();
+            return (etag != null && etag.length() > 0) ? etag : null;
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Could not read ETag of partial download " + resumeEtagFile.getPath(), e);
+            return null;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    Log_OC.e(TAG, "Error closing " + resumeEtagFile.getPath(), e);
+                }
+            }
+        }
+    }
+
+    private void writeResumeEtag(File resumeEtagFile, String etag) {
+        FileWriter writer = null;
+        try {
+            writer = new FileWriter(resumeEtagFile);
+            writer.write(etag);
+        } catch (IOException e) {
+            Log_OC.e(TAG, "Could not store ETag of download " + resumeEtagFile.getPath(), e);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    Log_OC.e(TAG, "Error closing " + resumeEtagFile.getPath(), e);
+                }
+            }
+        }
+    }
+
+    boolean isSuccess(int status) {
+        return (status == HttpStatus.SC_OK || status == HttpStatus.SC_PARTIAL_CONTENT);
     }
 
-    private String getTmpPath() {
+    String getTmpPath() {
         return mLocalFolderPath + mRemotePath;
     }
 
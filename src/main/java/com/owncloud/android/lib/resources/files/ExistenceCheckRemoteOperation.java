@@ -93,7 +93,7 @@ public class ExistenceCheckRemoteOperation extends RemoteOperation {
                 mRedirectionPath = client.followRedirection(head);
                 status = mRedirectionPath.getLastStatus();
             }
-            client.exhaustResponse(head.getResponseBodyAsStream());
+            client.exhaustResponse(head);
             boolean success = (status == HttpStatus.SC_OK && !mSuccessIfAbsent) ||
                     (status == HttpStatus.SC_NOT_FOUND && mSuccessIfAbsent);
             result = new RemoteOperationResult(
@@ -25,9 +25,16 @@
 package com.owncloud.android.lib.resources.files;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.security.MessageDigest;
+import java.nio.charset.Charset;
 import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.zip.Adler32;
 
 public class FileUtils {
 
@@ -35,6 +42,12 @@ public class FileUtils {
 
     public static final String PATH_SEPARATOR = "/";
 
+    public static final String CHECKSUM_TYPE_SHA256 = "SHA256";
+    public static final String CHECKSUM_TYPE_ADLER32 = "ADLER32";
+
+    private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+    static final int FINGERPRINT_BLOCK_SIZE = 64 * 1024;
+
 
     public static String getParentPath(String remotePath) {
         String parentPath = new File(remotePath).getParent();
@@ -58,13 +71,93 @@ public class FileUtils {
 
         MessageDigest messageDigest = MessageDigest.getInstance("MD5");
         messageDigest.update(temp.getBytes());
-        byte[] digest = messageDigest.digest();
-        StringBuilder md5String = new StringBuilder(new BigInteger(1, digest).toString(16));
 
-        while (md5String.length() < 32) {
-            md5String.insert(0, "0");
+        return String.format(Locale.US, "%032x", new BigInteger(1, messageDigest.digest()));
+    }
+
+    /**
+     * Fingerprints a file to be uploaded to the given remote path, sampling its content: the size and the first,
+     * middle and last {@link #FINGERPRINT_BLOCK_SIZE} bytes are hashed, smaller files are hashed whole. Reads at
+     * most three blocks whatever the size of the file, and does not depend on its name or modification time.
+     *
+     * @return 32 hex characters
+     */
+    public static String contentFingerprint(File file, String remotePath) throws IOException {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // the same content uploaded to two targets at the same time must not share the upload folder
+        messageDigest.update(remotePath.getBytes(Charset.forName("UTF-8")));
+
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            long length = randomAccessFile.length();
+            for (int i = 0; i < 8; i++) {
+                messageDigest.update((byte) (length >>> (56 - 8 * i)));
+            }
+
+            byte[] block = new byte[FINGERPRINT_BLOCK_SIZE];
+            if (length <= 3L * FINGERPRINT_BLOCK_SIZE) {
+                int read;
+                while ((read = randomAccessFile.read(block)) != -1) {
+                    messageDigest.update(block, 0, read);
+                }
+            } else {
+                long[] offsets = {0, (length - FINGERPRINT_BLOCK_SIZE) / 2, length - FINGERPRINT_BLOCK_SIZE};
+                for (long offset : offsets) {
+                    randomAccessFile.seek(offset);
+                    randomAccessFile.readFully(block);
+                    messageDigest.update(block);
+                }
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+
+        return String.format(Locale.US, "%032x", new BigInteger(1, messageDigest.digest()));
+    }
+
+    /**
+     * Computes the checksum of the whole content of a file, streaming it from disk. Reads the full file, so it
+     * must not be called from the main thread.
+     *
+     * @param file         file to read
+     * @param checksumType {@link #CHECKSUM_TYPE_SHA256} or {@link #CHECKSUM_TYPE_ADLER32}
+     * @return checksum in the "TYPE:hex" format used by the OC-Checksum header and the oc:checksums property
+     */
+    public static String checksum(File file, String checksumType) throws IOException {
+        byte[] buffer = new byte[CHECKSUM_BUFFER_SIZE];
+        String hex;
+
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            int read;
+            if (CHECKSUM_TYPE_ADLER32.equals(checksumType)) {
+                Adler32 adler32 = new Adler32();
+                while ((read = inputStream.read(buffer)) != -1) {
+                    adler32.update(buffer, 0, read);
+                }
+                hex = String.format(Locale.US, "%08x", adler32.getValue());
+
+            } else if (CHECKSUM_TYPE_SHA256.equals(checksumType)) {
+                MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+                while ((read = inputStream.read(buffer)) != -1) {
+                    messageDigest.update(buffer, 0, read);
+                }
+                hex = String.format(Locale.US, "%064x", new BigInteger(1, messageDigest.digest()));
+
+            } else {
+                throw new IllegalArgumentException("Unsupported checksum type " + checksumType);
+            }
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            inputStream.close();
         }
 
-        return md5String.toString();
+        return checksumType + ":" + hex;
     }
 }
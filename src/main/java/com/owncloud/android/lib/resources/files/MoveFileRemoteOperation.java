@@ -116,7 +116,7 @@ public class MoveFileRemoteOperation extends RemoteOperation {
             } else if (status == HttpStatus.SC_PRECONDITION_FAILED && !mOverwrite) {
 
                 result = new RemoteOperationResult(ResultCode.INVALID_OVERWRITE);
-                client.exhaustResponse(move.getResponseBodyAsStream());
+                client.exhaustResponse(move);
 
 
                 /// for other errors that could be explicitly handled, check first:
@@ -124,7 +124,7 @@ public class MoveFileRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(isSuccess(status), move);
-                client.exhaustResponse(move.getResponseBodyAsStream());
+                client.exhaustResponse(move);
             }
 
             Log.i(TAG, "Move " + mSrcRemotePath + " to " + mTargetRemotePath + ": " +
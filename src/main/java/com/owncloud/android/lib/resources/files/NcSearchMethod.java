@@ -26,12 +26,17 @@
  */
 package com.owncloud.android.lib.resources.files;
 
+import com.owncloud.android.lib.common.network.MultiStatusReader;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 
+import org.apache.commons.httpclient.HttpConnection;
+import org.apache.commons.httpclient.HttpState;
+
 import org.apache.jackrabbit.webdav.search.SearchInfo;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Text;
+import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
 import java.text.DateFormat;
@@ -68,6 +73,19 @@ public class NcSearchMethod extends org.apache.jackrabbit.webdav.client.methods.
         setRequestBody(createQuery(searchInfo.getQuery()));
     }
 
+    /**
+     * @return reader over the responses of the multistatus body; must be consumed before the connection
+     * is released
+     */
+    public MultiStatusReader getResponseBodyAsMultiStatusReader() throws IOException, XmlPullParserException {
+        return new MultiStatusReader(getResponseBodyAsStream());
+    }
+
+    @Override
+    protected void processResponseBody(HttpState httpState, HttpConnection httpConnection) {
+        // body is parsed lazily by MultiStatusReader, search results can be large
+    }
+
     private Document createQuery(String searchQuery) {
         String internalSearchString = searchQuery;
 
@@ -102,7 +102,7 @@ public class ReadFileRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(false, propfind);
-                client.exhaustResponse(propfind.getResponseBodyAsStream());
+                client.exhaustResponse(propfind);
             }
 
         } catch (Exception e) {
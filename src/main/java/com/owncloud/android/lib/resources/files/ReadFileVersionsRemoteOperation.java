@@ -28,6 +28,8 @@
 package com.owncloud.android.lib.resources.files;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.MultiStatusReader;
+import com.owncloud.android.lib.common.network.StreamingPropFindMethod;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
@@ -37,10 +39,11 @@ import com.owncloud.android.lib.resources.files.model.FileVersion;
 
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.jackrabbit.webdav.DavConstants;
-import org.apache.jackrabbit.webdav.MultiStatus;
-import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 import androidx.annotation.NonNull;
@@ -73,13 +76,13 @@ public class ReadFileVersionsRemoteOperation extends RemoteOperation {
     @Override
     protected RemoteOperationResult run(OwnCloudClient client) {
         RemoteOperationResult result = null;
-        PropFindMethod query = null;
+        StreamingPropFindMethod query = null;
 
         try {
             String uri = client.getNewWebdavUri() + "/versions/" + client.getUserId() + "/versions/" + fileId;
             DavPropertyNameSet propSet = WebdavUtils.getFileVersionPropSet();
 
-            query = new PropFindMethod(uri, propSet, DavConstants.DEPTH_1);
+            query = new StreamingPropFindMethod(uri, propSet, DavConstants.DEPTH_1);
             int status = client.executeMethod(query);
 
             // check and process response
@@ -87,8 +90,12 @@ public class ReadFileVersionsRemoteOperation extends RemoteOperation {
 
             if (isSuccess) {
                 // get data from remote folder
-                MultiStatus dataInServer = query.getResponseBodyAsMultiStatus();
-                readData(dataInServer, client);
+                MultiStatusReader dataInServer = query.getResponseBodyAsMultiStatusReader();
+                try {
+                    readData(dataInServer, client);
+                } finally {
+                    dataInServer.close();
+                }
 
                 // Result of the operation
                 result = new RemoteOperationResult(true, query);
@@ -98,7 +105,7 @@ public class ReadFileVersionsRemoteOperation extends RemoteOperation {
                 }
             } else {
                 // synchronization failed
-                client.exhaustResponse(query.getResponseBodyAsStream());
+                client.exhaustResponse(query);
                 result = new RemoteOperationResult(false, query);
             }
         } catch (Exception e) {
@@ -130,18 +137,24 @@ public class ReadFileVersionsRemoteOperation extends RemoteOperation {
     /**
      * Read the data retrieved from the server about the file versions.
      *
-     * @param remoteData Full response got from the server with the version data.
+     * @param remoteData Reader over the response got from the server with the version data.
      * @param client     Client instance to the remote server where the data were retrieved.
      */
-    private void readData(MultiStatus remoteData, OwnCloudClient client) {
+    private void readData(MultiStatusReader remoteData, OwnCloudClient client)
+        throws IOException, XmlPullParserException {
         versions = new ArrayList<>();
 
         // parse data from remote folder
         String splitElement = client.getNewWebdavUri().getPath();
 
-        // loop to update every child
-        for (int i = 1; i < remoteData.getResponses().length; ++i) {
-            versions.add(new FileVersion(fileId, new WebdavEntry(remoteData.getResponses()[i], splitElement)));
+        // skip the versions folder itself
+        if (remoteData.next() != null) {
+            MultiStatusResponse response;
+
+            // loop to update every child
+            while ((response = remoteData.next()) != null) {
+                versions.add(new FileVersion(fileId, new WebdavEntry(response, splitElement)));
+            }
         }
     }
 }
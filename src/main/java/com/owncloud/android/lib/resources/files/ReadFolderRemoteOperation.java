@@ -25,6 +25,8 @@
 package com.owncloud.android.lib.resources.files;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.MultiStatusReader;
+import com.owncloud.android.lib.common.network.StreamingPropFindMethod;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
@@ -34,9 +36,11 @@ import com.owncloud.android.lib.resources.files.model.RemoteFile;
 
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.jackrabbit.webdav.DavConstants;
-import org.apache.jackrabbit.webdav.MultiStatus;
-import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -52,6 +56,8 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
 
     private String mRemotePath;
     private ArrayList<Object> mFolderAndFiles;
+    private OnRemoteFolderReadListener mListener;
+    private DavPropertyNameSet mPropSet = WebdavUtils.getAllPropSet();
 
     /**
      * Constructor
@@ -62,6 +68,33 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
         mRemotePath = remotePath;
     }
 
+    /**
+     * Constructor for incremental listings: children are handed to the listener as soon as they are parsed
+     * instead of being collected in the result, whose data then only holds the target folder.
+     *
+     * @param remotePath Remote path of the folder.
+     * @param listener   Listener receiving the folder and its children while the response is read.
+     */
+    public ReadFolderRemoteOperation(String remotePath, OnRemoteFolderReadListener listener) {
+        mRemotePath = remotePath;
+        mListener = listener;
+    }
+
+    /**
+     * Constructor requesting a custom set of properties, e.g. {@link WebdavUtils#getSyncPropSet()} for
+     * synchronizations that only compare etags, ids and sizes and walk into folders.
+     *
+     * @param remotePath Remote path of the folder.
+     * @param propSet    Properties to request for the folder and its children.
+     * @param listener   Listener receiving the folder and its children while the response is read, may be null.
+     */
+    public ReadFolderRemoteOperation(String remotePath, DavPropertyNameSet propSet,
+                                     OnRemoteFolderReadListener listener) {
+        mRemotePath = remotePath;
+        mPropSet = propSet;
+        mListener = listener;
+    }
+
     /**
      * Performs the read operation.
      *
@@ -70,12 +103,12 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
     @Override
     protected RemoteOperationResult run(OwnCloudClient client) {
         RemoteOperationResult result = null;
-        PropFindMethod query = null;
+        StreamingPropFindMethod query = null;
 
         try {
             // remote request
-            query = new PropFindMethod(client.getWebdavUri() + WebdavUtils.encodePath(mRemotePath),
-                WebdavUtils.getAllPropSet(),    // PropFind Properties
+            query = new StreamingPropFindMethod(client.getWebdavUri() + WebdavUtils.encodePath(mRemotePath),
+                mPropSet,    // PropFind Properties
                 DavConstants.DEPTH_1);
             int status = client.executeMethod(query);
 
@@ -84,8 +117,12 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
             
             if (isSuccess) {
                 // get data from remote folder
-                MultiStatus dataInServer = query.getResponseBodyAsMultiStatus();
-                readData(dataInServer, client);
+                MultiStatusReader dataInServer = query.getResponseBodyAsMultiStatusReader();
+                try {
+                    readData(dataInServer, client);
+                } finally {
+                    dataInServer.close();
+                }
 
                 // Result of the operation
                 result = new RemoteOperationResult(true, query);
@@ -95,7 +132,7 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
                 }
             } else {
                 // synchronization failed
-                client.exhaustResponse(query.getResponseBodyAsStream());
+                client.exhaustResponse(query);
                 result = new RemoteOperationResult(false, query);
             }
         } catch (Exception e) {
@@ -131,26 +168,34 @@ public class ReadFolderRemoteOperation extends RemoteOperation {
     /**
      * Read the data retrieved from the server about the contents of the target folder
      *
-     * @param remoteData Full response got from the server with the data of the target
+     * @param remoteData Reader over the response got from the server with the data of the target
      *                   folder and its direct children.
      * @param client     Client instance to the remote server where the data were
      *                   retrieved.
-     * @return
      */
-    private void readData(MultiStatus remoteData, OwnCloudClient client) {
+    private void readData(MultiStatusReader remoteData, OwnCloudClient client)
+        throws IOException, XmlPullParserException {
         mFolderAndFiles = new ArrayList<>();
 
-        // parse data from remote folder 
-        WebdavEntry we = new WebdavEntry(remoteData.getResponses()[0], client.getWebdavUri().getPath());
-        mFolderAndFiles.add(fillOCFile(we));
-
-        // loop to update every child
-        RemoteFile remoteFile;
-        for (int i = 1; i < remoteData.getResponses().length; ++i) {
+        // the first response is the target folder, the following ones its children
+        String splitElement = client.getWebdavUri().getPath();
+        MultiStatusResponse response;
+        while ((response = remoteData.next()) != null) {
             /// new OCFile instance with the data from the server
-            we = new WebdavEntry(remoteData.getResponses()[i], client.getWebdavUri().getPath());
-            remoteFile = fillOCFile(we);
-            mFolderAndFiles.add(remoteFile);
+            RemoteFile remoteFile = fillOCFile(new WebdavEntry(response, splitElement));
+
+            if (mListener == null) {
+                mFolderAndFiles.add(remoteFile);
+            } else if (mFolderAndFiles.isEmpty()) {
+                mFolderAndFiles.add(remoteFile);
+                mListener.onFolderRead(remoteFile);
+            } else {
+                mListener.onChildRead(remoteFile);
+            }
+        }
+
+        if (mFolderAndFiles.isEmpty()) {
+            throw new IOException("Multistatus without response for " + mRemotePath);
         }
 
     }
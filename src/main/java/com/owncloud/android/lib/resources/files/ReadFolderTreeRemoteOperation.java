@@ -0,0 +1,214 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.RequestAbortScope;
+import com.owncloud.android.lib.common.operations.RemoteOperation;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+import com.owncloud.android.lib.resources.files.model.RemoteFile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Remote operation reading a folder tree, one DEPTH_1 PROPFIND per folder.
+ *
+ * Subfolders whose ETag matches the one known by the caller are not descended into, since nothing below them
+ * changed. Independent folders are read concurrently, up to the given parallelism.
+ *
+ * On success the result data holds one entry per folder read, each of them the list returned by
+ * {@link ReadFolderRemoteOperation}: the folder itself followed by its direct children. A folder is always listed
+ * before its subfolders.
+ */
+public class ReadFolderTreeRemoteOperation extends RemoteOperation {
+
+    private static final String TAG = ReadFolderTreeRemoteOperation.class.getSimpleName();
+
+    /**
+     * stays below the per host limit of the shared connection manager
+     */
+    public static final int DEFAULT_PARALLELISM = 3;
+
+    private final String remotePath;
+    private final Map<String, String> knownEtags;
+    private final int parallelism;
+
+    /**
+     * @param remotePath  Remote path of the root folder of the tree.
+     * @param knownEtags  ETags of the folders as last seen by the caller, keyed by the remote path given by
+     *                    {@link RemoteFile#getRemotePath()}. May be empty to read the whole tree.
+     */
+    public ReadFolderTreeRemoteOperation(String remotePath, Map<String, String> knownEtags) {
+        this(remotePath, knownEtags, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param remotePath  Remote path of the root folder of the tree.
+     * @param knownEtags  ETags of the folders as last seen by the caller, keyed by the remote path given by
+     *                    {@link RemoteFile#getRemotePath()}. May be empty to read the whole tree.
+     * @param parallelism Maximum number of folders read at the same time.
+     */
+    public ReadFolderTreeRemoteOperation(String remotePath, Map<String, String> knownEtags, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.remotePath = remotePath;
+        this.knownEtags = knownEtags == null ? Collections.<String, String>emptyMap() : knownEtags;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected RemoteOperationResult run(final OwnCloudClient client) {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        CompletionService<RemoteOperationResult> completionService = new ExecutorCompletionService<>(executor);
+        RunningReads runningReads = new RunningReads();
+        ArrayList<Object> folders = new ArrayList<>();
+        RemoteOperationResult result = null;
+
+        try {
+            submit(completionService, runningReads, client, remotePath);
+            int pending = 1;
+
+            while (pending > 0) {
+                RemoteOperationResult folderResult = completionService.take().get();
+                pending--;
+
+                if (!folderResult.isSuccess()) {
+                    result = folderResult;
+                    break;
+                }
+
+                ArrayList<Object> folderAndFiles = folderResult.getData();
+                folders.add(folderAndFiles);
+
+                RemoteFile folder = (RemoteFile) folderAndFiles.get(0);
+                if (isUnchanged(folder)) {
+                    // listed because it is the root; nothing below it changed
+                    continue;
+                }
+
+                for (int i = 1; i < folderAndFiles.size(); i++) {
+                    RemoteFile child = (RemoteFile) folderAndFiles.get(i);
+                    if (isFolder(child) && !isUnchanged(child)) {
+                        submit(completionService, runningReads, client, child.getRemotePath());
+                        pending++;
+                    }
+                }
+            }
+
+            if (result == null) {
+                result = new RemoteOperationResult(RemoteOperationResult.ResultCode.OK);
+                result.setData(folders);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result = new RemoteOperationResult(e);
+        } catch (ExecutionException e) {
+            result = new RemoteOperationResult(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } finally {
+            // interrupting the workers does not stop blocking HttpClient I/O, so their requests are aborted
+            runningReads.stop();
+            executor.shutdownNow();
+        }
+
+        if (result.isSuccess()) {
+            Log_OC.i(TAG, "Read tree of " + remotePath + ": " + folders.size() + " folders");
+        } else {
+            Log_OC.e(TAG, "Read tree of " + remotePath + " failed: " + result.getLogMessage(), result.getException());
+        }
+
+        return result;
+    }
+
+    private void submit(CompletionService<RemoteOperationResult> completionService,
+                        final RunningReads runningReads,
+                        final OwnCloudClient client,
+                        final String folderPath) {
+        completionService.submit(new Callable<RemoteOperationResult>() {
+            @Override
+            public RemoteOperationResult call() {
+                RequestAbortScope scope = new RequestAbortScope();
+                if (!runningReads.start(scope)) {
+                    return new RemoteOperationResult(RemoteOperationResult.ResultCode.CANCELLED);
+                }
+                scope.enter();
+                try {
+                    return new ReadFolderRemoteOperation(folderPath).execute(client);
+                } finally {
+                    scope.exit();
+                    runningReads.finish(scope);
+                }
+            }
+        });
+    }
+
+    private boolean isUnchanged(RemoteFile folder) {
+        String knownEtag = knownEtags.get(folder.getRemotePath());
+        return knownEtag != null && knownEtag.equals(folder.getEtag());
+    }
+
+    private static boolean isFolder(RemoteFile file) {
+        return "DIR".equals(file.getMimeType());
+    }
+
+    /**
+     * Abort scopes of the folder reads in progress, aborted together once the tree is finished or failed.
+     */
+    private static class RunningReads {
+        private final Set<RequestAbortScope> scopes = new HashSet<>();
+        private boolean stopped = false;
+
+        synchronized boolean start(RequestAbortScope scope) {
+            if (stopped) {
+                return false;
+            }
+            scopes.add(scope);
+            return true;
+        }
+
+        synchronized void finish(RequestAbortScope scope) {
+            scopes.remove(scope);
+        }
+
+        synchronized void stop() {
+            stopped = true;
+            for (RequestAbortScope scope : scopes) {
+                scope.abort();
+            }
+        }
+    }
+}
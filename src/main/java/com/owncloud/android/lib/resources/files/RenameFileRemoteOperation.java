@@ -105,7 +105,7 @@ public class RenameFileRemoteOperation extends RemoteOperation {
             Log_OC.i(TAG, "Rename " + mOldRemotePath + " to " + mNewRemotePath + ": " +
                     result.getLogMessage()
             );
-            client.exhaustResponse(move.getResponseBodyAsStream());
+            client.exhaustResponse(move);
 
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
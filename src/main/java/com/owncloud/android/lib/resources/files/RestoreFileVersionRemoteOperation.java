@@ -83,7 +83,7 @@ public class RestoreFileVersionRemoteOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(isSuccess(status), move);
 
-            client.exhaustResponse(move.getResponseBodyAsStream());
+            client.exhaustResponse(move);
         } catch (IOException e) {
             result = new RemoteOperationResult(e);
             Log.e(TAG, "Restore file version with id " + fileId + " failed: " + result.getLogMessage(), e);
@@ -28,12 +28,12 @@
 package com.owncloud.android.lib.resources.files;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.MultiStatusReader;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
 import com.owncloud.android.lib.common.utils.WebDavFileUtils;
 
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.jackrabbit.webdav.MultiStatus;
 import org.apache.jackrabbit.webdav.client.methods.OptionsMethod;
 import org.apache.jackrabbit.webdav.search.SearchInfo;
 import org.apache.jackrabbit.webdav.xml.Namespace;
@@ -109,10 +109,15 @@ public class SearchRemoteOperation extends RemoteOperation {
 
                 if (isSuccess) {
                     // get data from remote folder
-                    MultiStatus dataInServer = searchMethod.getResponseBodyAsMultiStatus();
+                    MultiStatusReader dataInServer = searchMethod.getResponseBodyAsMultiStatusReader();
                     WebDavFileUtils webDavFileUtils = new WebDavFileUtils();
-                    ArrayList<Object> mFolderAndFiles = webDavFileUtils.readData(dataInServer, client, false, true,
-                                                                                 client.getUserId());
+                    ArrayList<Object> mFolderAndFiles;
+                    try {
+                        mFolderAndFiles = webDavFileUtils.readData(dataInServer, client, false, true,
+                                                                   client.getUserId());
+                    } finally {
+                        dataInServer.close();
+                    }
 
                     // Result of the operation
                     result = new RemoteOperationResult(true, status, searchMethod.getResponseHeaders());
@@ -122,11 +127,11 @@ public class SearchRemoteOperation extends RemoteOperation {
                     }
                 } else {
                     // synchronization failed
-                    client.exhaustResponse(searchMethod.getResponseBodyAsStream());
+                    client.exhaustResponse(searchMethod);
                     result = new RemoteOperationResult(false, status, searchMethod.getResponseHeaders());
                 }
             } else {
-                client.exhaustResponse(optionsMethod.getResponseBodyAsStream());
+                client.exhaustResponse(optionsMethod);
                 result = new RemoteOperationResult(false, optionsStatus, optionsMethod.getResponseHeaders());
             }
 
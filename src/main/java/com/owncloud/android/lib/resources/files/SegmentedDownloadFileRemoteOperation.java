@@ -0,0 +1,330 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
+import com.owncloud.android.lib.common.network.WebdavUtils;
+import com.owncloud.android.lib.common.operations.OperationCancelledException;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.utils.Log_OC;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remote operation performing the download of a remote file in several byte ranges fetched in parallel, each of
+ * them written at its offset of a preallocated local file.
+ *
+ * Helps when a proxy throttles every single connection below the speed of the link. The segments share the
+ * connection manager of the client, so its per-host limit caps the effective parallelism.
+ *
+ * Falls back to a plain {@link DownloadFileRemoteOperation} for small files and for servers that do not answer
+ * range requests with a strong ETag.
+ */
+public class SegmentedDownloadFileRemoteOperation extends DownloadFileRemoteOperation {
+
+    private static final String TAG = SegmentedDownloadFileRemoteOperation.class.getSimpleName();
+
+    public static final int DEFAULT_SEGMENTS = 4;
+    public static final long MIN_SEGMENT_SIZE = 4194304;
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final String RANGE_HEADER = "Range";
+    private static final String IF_RANGE_HEADER = "If-Range";
+    private static final String CONTENT_RANGE_HEADER = "Content-Range";
+    private static final String ACCEPT_RANGES_HEADER = "Accept-Ranges";
+    private static final String ETAG_HEADER = "ETag";
+
+    private final int segments;
+    private final Set<GetMethod> activeGetMethods = new HashSet<>();
+
+    public SegmentedDownloadFileRemoteOperation(String remotePath, String localFolderPath) {
+        this(remotePath, localFolderPath, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param segments maximum number of ranges downloaded at the same time, must be at least 1
+     */
+    public SegmentedDownloadFileRemoteOperation(String remotePath, String localFolderPath, int segments) {
+        super(remotePath, localFolderPath);
+        if (segments < 1) {
+            throw new IllegalArgumentException("Segments must be at least 1");
+        }
+        this.segments = segments;
+    }
+
+    @Override
+    protected RemoteOperationResult run(OwnCloudClient client) {
+        RemoteOperationResult result;
+        File tmpFile = new File(getTmpPath());
+        HeadMethod head = new HeadMethod(client.getWebdavUri() + WebdavUtils.encodePath(mRemotePath));
+
+        try {
+            tmpFile.getParentFile().mkdirs();
+
+            int status = client.executeMethod(head);
+            client.exhaustResponse(head);
+            head.releaseConnection(); // the fallback download needs it
+            if (!isSuccess(status)) {
+                return new RemoteOperationResult(false, head);
+            }
+
+            long length = getContentLength(head);
+            Header etag = head.getResponseHeader(ETAG_HEADER);
+            Header acceptRanges = head.getResponseHeader(ACCEPT_RANGES_HEADER);
+
+            if (segments == 1 || length < 2 * MIN_SEGMENT_SIZE || etag == null || etag.getValue().startsWith("W/") ||
+                    (acceptRanges != null && "none".equalsIgnoreCase(acceptRanges.getValue()))) {
+                return super.run(client);
+            }
+
+            // segments are not resumable, a partial download left by a previous attempt is overwritten
+            discardPartialDownload(tmpFile);
+            if (!downloadSegments(client, tmpFile, length, etag.getValue())) {
+                Log_OC.d(TAG, "Ranges not supported downloading " + mRemotePath + ", downloading as a whole");
+                discardPartialDownload(tmpFile);
+                return super.run(client);
+            }
+
+            Header modificationTime = head.getResponseHeader("Last-Modified");
+            if (modificationTime != null) {
+                Date d = WebdavUtils.parseResponseDate(modificationTime.getValue());
+                mModificationTimestamp = (d != null) ? d.getTime() : 0;
+            } else {
+                Log_OC.e(TAG, "Could not read modification time from response downloading " + mRemotePath);
+            }
+            mEtag = WebdavUtils.getEtagFromResponse(head);
+
+            result = new RemoteOperationResult(true, head);
+            Log_OC.i(TAG, "Segmented download of " + mRemotePath + " to " + getTmpPath() + ": " +
+                result.getLogMessage());
+
+        } catch (Exception e) {
+            discardPartialDownload(tmpFile);
+            result = new RemoteOperationResult(e);
+            Log_OC.e(TAG, "Segmented download of " + mRemotePath + " to " + getTmpPath() + ": " +
+                result.getLogMessage(), e);
+        } finally {
+            head.releaseConnection();
+        }
+
+        return result;
+    }
+
+    /**
+     * Downloads all segments of the file into a preallocated local file.
+     *
+     * @return false if the server did not answer a range request with the expected range of the same file version
+     */
+    private boolean downloadSegments(final OwnCloudClient client,
+                                     File targetFile,
+                                     final long length,
+                                     final String etag) throws Exception {
+        long segmentSize = (length + segments - 1) / segments;
+        final AtomicLong transferred = new AtomicLong(0);
+
+        RandomAccessFile raf = new RandomAccessFile(targetFile, "rw");
+        final FileChannel channel = raf.getChannel();
+        ExecutorService executor = Executors.newFixedThreadPool(segments);
+
+        try {
+            raf.setLength(length);
+
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (long start = 0; start < length; start += segmentSize) {
+                final long segmentStart = start;
+                final long segmentEnd = Math.min(length, start + segmentSize) - 1;
+
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        return downloadSegment(client, channel, segmentStart, segmentEnd, etag, length, transferred);
+                    }
+                }));
+            }
+
+            boolean rangesSupported = true;
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (!future.get()) {
+                        rangesSupported = false;
+                        abortActiveGetMethods();
+                    }
+                } catch (ExecutionException e) {
+                    if (!rangesSupported) {
+                        continue; // aborted after another segment found out ranges are not supported
+                    }
+                    abortActiveGetMethods();
+                    if (mCancellationRequested.get()) {
+                        throw new OperationCancelledException();
+                    }
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+
+            if (rangesSupported && transferred.get() != length) {
+                throw new IOException("Segmented download of " + mRemotePath + " incomplete: " + transferred.get() +
+                                          " of " + length + " bytes");
+            }
+            return rangesSupported;
+
+        } finally {
+            executor.shutdownNow();
+            channel.close();
+            raf.close();
+        }
+    }
+
+    /**
+     * Downloads the range [start, end] of the file and writes it at the same offset of the local file.
+     *
+     * @return false if the server did not answer with that range of the expected file version
+     */
+    private boolean downloadSegment(OwnCloudClient client,
+                                    FileChannel channel,
+                                    long start,
+                                    long end,
+                                    String etag,
+                                    long length,
+                                    AtomicLong transferred) throws IOException, OperationCancelledException {
+        GetMethod get = new GetMethod(client.getWebdavUri() + WebdavUtils.encodePath(mRemotePath));
+        get.addRequestHeader(RANGE_HEADER, "bytes=" + start + "-" + end);
+        get.addRequestHeader(IF_RANGE_HEADER, etag);
+
+        synchronized (activeGetMethods) {
+            activeGetMethods.add(get);
+        }
+
+        try {
+            if (mCancellationRequested.get()) {
+                throw new OperationCancelledException();
+            }
+
+            int status = client.executeMethod(get);
+
+            if (status != HttpStatus.SC_PARTIAL_CONTENT || !isExpectedRange(get, start, end, length)) {
+                // either no range support or the file changed since the HEAD request; do not read the whole file
+                get.abort();
+                return false;
+            }
+
+            InputStream inputStream = get.getResponseBodyAsStream();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            String fileName = new File(getTmpPath()).getName();
+            long position = start;
+            int readResult;
+
+            while ((readResult = inputStream.read(buffer.array())) != -1) {
+                if (mCancellationRequested.get()) {
+                    get.abort();
+                    throw new OperationCancelledException();
+                }
+                if (position + readResult > end + 1) {
+                    throw new IOException("Server sent more bytes than requested for range " + start + "-" + end);
+                }
+
+                buffer.position(0);
+                buffer.limit(readResult);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+
+                long transferredSoFar = transferred.addAndGet(readResult);
+                synchronized (mDataTransferListeners) {
+                    for (OnDatatransferProgressListener listener : mDataTransferListeners) {
+                        listener.onTransferProgress(readResult, transferredSoFar, length, fileName);
+                    }
+                }
+            }
+
+            if (position != end + 1) {
+                throw new IOException("Incomplete range " + start + "-" + end + ": received up to " + position);
+            }
+            return true;
+
+        } finally {
+            synchronized (activeGetMethods) {
+                activeGetMethods.remove(get);
+            }
+            get.releaseConnection();
+        }
+    }
+
+    private boolean isExpectedRange(GetMethod get, long start, long end, long length) {
+        Header contentRange = get.getResponseHeader(CONTENT_RANGE_HEADER);
+
+        return contentRange != null &&
+            ("bytes " + start + "-" + end + "/" + length).equals(contentRange.getValue().trim());
+    }
+
+    private long getContentLength(HeadMethod head) {
+        Header contentLength = head.getResponseHeader("Content-Length");
+        if (contentLength == null || contentLength.getValue().length() == 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(contentLength.getValue().trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void abortActiveGetMethods() {
+        synchronized (activeGetMethods) {
+            for (GetMethod activeGetMethod : activeGetMethods) {
+                activeGetMethod.abort();
+            }
+        }
+    }
+
+    @Override
+    public void cancel() {
+        super.cancel();
+        abortActiveGetMethods();
+    }
+}
@@ -28,20 +28,26 @@ import com.owncloud.android.lib.common.OwnCloudClient;
 import com.owncloud.android.lib.common.network.FileRequestEntity;
 import com.owncloud.android.lib.common.network.OnDatatransferProgressListener;
 import com.owncloud.android.lib.common.network.ProgressiveDataTransfer;
+import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.OperationCancelledException;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
 import com.owncloud.android.lib.common.operations.RemoteOperationResult;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
 
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.jackrabbit.webdav.DavConstants;
+import org.apache.jackrabbit.webdav.MultiStatus;
+import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -56,6 +62,7 @@ public class UploadFileRemoteOperation extends RemoteOperation {
 	private static final String OC_TOTAL_LENGTH_HEADER = "OC-Total-Length";
 	private static final String IF_MATCH_HEADER = "If-Match";
     private static final String OC_X_OC_MTIME_HEADER = "X-OC-Mtime";
+    static final String OC_CHECKSUM_HEADER = "OC-Checksum";
 
 	protected String localPath;
 	protected String remotePath;
@@ -63,6 +70,8 @@ public class UploadFileRemoteOperation extends RemoteOperation {
 	private String lastModificationTimestamp;
 	PutMethod putMethod = null;
 	private String requiredEtag = null;
+	private String checksumType = null;
+	String checksum = null;
 
 	final AtomicBoolean cancellationRequested = new AtomicBoolean(false);
 	final Set<OnDatatransferProgressListener> dataTransferListeners = new HashSet<>();
@@ -110,8 +119,13 @@ public class UploadFileRemoteOperation extends RemoteOperation {
 				result = new RemoteOperationResult(new OperationCancelledException());
 
 			} else {
-				// perform the upload
-				result = uploadFile(client);
+				// skip the transfer if the server already holds the same content
+				result = checkExistingContent(client);
+
+				if (result == null) {
+					// perform the upload
+					result = uploadFile(client);
+				}
 			}
 
 		} catch (Exception e) {
@@ -131,6 +145,81 @@ public class UploadFileRemoteOperation extends RemoteOperation {
 		return result;
 	}
 
+	/**
+	 * Enables the checksum of the local file: it is sent in the OC-Checksum header, and the upload is skipped when
+	 * the file at the remote path already has the same size and checksum.
+	 *
+	 * @param checksumType {@link FileUtils#CHECKSUM_TYPE_SHA256}, {@link FileUtils#CHECKSUM_TYPE_ADLER32}, or null
+	 *                     to upload without checksum (default)
+	 */
+	public void setChecksumType(String checksumType) {
+		this.checksumType = checksumType;
+	}
+
+	/**
+	 * Computes the checksum of the local file, if enabled, and compares it with the one of the remote file.
+	 *
+	 * @return successful result if the remote file has the same content and the upload can be skipped, null if
+	 * the file has to be uploaded
+	 */
+	protected RemoteOperationResult checkExistingContent(OwnCloudClient client) throws IOException {
+		if (checksumType == null) {
+			return null;
+		}
+
+		File f = new File(localPath);
+		checksum = FileUtils.checksum(f, checksumType);
+
+		if (cancellationRequested.get()) {
+			return new RemoteOperationResult(new OperationCancelledException());
+		}
+
+		PropFindMethod propfind = null;
+		try {
+			propfind = new PropFindMethod(client.getWebdavUri() + WebdavUtils.encodePath(remotePath),
+				WebdavUtils.getChecksumPropSet(),
+				DavConstants.DEPTH_0);
+			int status = client.executeMethod(propfind);
+
+			if (status != HttpStatus.SC_MULTI_STATUS) {
+				// most likely not found: nothing to compare with
+				client.exhaustResponse(propfind);
+				return null;
+			}
+
+			MultiStatus multiStatus = propfind.getResponseBodyAsMultiStatus();
+			WebdavEntry entry = new WebdavEntry(multiStatus.getResponses()[0], client.getWebdavUri().getPath());
+
+			if (entry.getContentLength() == f.length() && containsChecksum(entry.getChecksums(), checksum)) {
+				return new RemoteOperationResult(ResultCode.OK);
+			}
+		} catch (Exception e) {
+			// the check is an optimization only, fall back to the upload
+			if (propfind != null && propfind.isAborted()) {
+				return new RemoteOperationResult(new OperationCancelledException());
+			}
+		} finally {
+			if (propfind != null) {
+				propfind.releaseConnection();
+			}
+		}
+		return null;
+	}
+
+	private static boolean containsChecksum(String checksums, String checksum) {
+		if (checksums == null) {
+			return false;
+		}
+		// the server lists every known checksum of the file, separated by spaces
+		String expected = checksum.toLowerCase(Locale.US);
+		for (String candidate : checksums.trim().split("\\s+")) {
+			if (candidate.toLowerCase(Locale.US).equals(expected)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public boolean isSuccess(int status) {
 		return ((status == HttpStatus.SC_OK || status == HttpStatus.SC_CREATED ||
                 status == HttpStatus.SC_NO_CONTENT));
@@ -152,12 +241,18 @@ public class UploadFileRemoteOperation extends RemoteOperation {
 			}
 			putMethod.addRequestHeader(OC_TOTAL_LENGTH_HEADER, String.valueOf(f.length()));
             putMethod.addRequestHeader(OC_X_OC_MTIME_HEADER, lastModificationTimestamp);
+			if (checksum != null) {
+				putMethod.addRequestHeader(OC_CHECKSUM_HEADER, checksum);
+			}
 			putMethod.setRequestEntity(entity);
+			// wait for the server to accept the headers, so redirections and authentication challenges don't
+			// cost a transfer of the whole file
+			putMethod.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
 			status = client.executeMethod(putMethod);
 
 			result = new RemoteOperationResult(isSuccess(status), putMethod);
 
-			client.exhaustResponse(putMethod.getResponseBodyAsStream());
+			client.exhaustResponse(putMethod);
 
 		} finally {
 			putMethod.releaseConnection(); // let the connection available for other methods
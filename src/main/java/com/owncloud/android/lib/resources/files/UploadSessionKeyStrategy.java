@@ -0,0 +1,73 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.resources.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Names the upload session of a chunked upload, i.e. the folder its chunks are stored in on the server. An
+ * interrupted upload is resumed only if the same key is computed again for the same file.
+ */
+public interface UploadSessionKeyStrategy {
+
+    /**
+     * Samples the content of the file, see {@link FileUtils#contentFingerprint(File, String)}. Survives changes
+     * of the modification time and tells apart files with the same name and size.
+     *
+     * Only for files that are never edited in place: an edit that keeps the size and falls outside the sampled
+     * blocks keeps the key, so chunks of the previous content would be reused and assembled into a corrupt file.
+     */
+    UploadSessionKeyStrategy CONTENT_SAMPLING = new UploadSessionKeyStrategy() {
+        @Override
+        public String getSessionKey(File file, String remotePath) throws IOException {
+            return FileUtils.contentFingerprint(file, remotePath);
+        }
+    };
+
+    /**
+     * Hashes name, modification time and size only, as done by previous versions; keeps resuming sessions started
+     * by them. Default, as any edit changes the modification time.
+     */
+    UploadSessionKeyStrategy FILE_METADATA = new UploadSessionKeyStrategy() {
+        @Override
+        public String getSessionKey(File file, String remotePath) {
+            try {
+                return FileUtils.md5Sum(file);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
+    /**
+     * @param file       local file to upload
+     * @param remotePath target path of the upload
+     * @return key usable as folder name in the uploads endpoint
+     */
+    String getSessionKey(File file, String remotePath) throws IOException;
+}
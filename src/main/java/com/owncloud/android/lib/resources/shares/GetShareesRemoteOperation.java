@@ -195,7 +195,7 @@ public class GetShareesRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(false, get);
-                String response = get.getResponseBodyAsString();
+                String response = RemoteOperationResult.getResponseBodyAsString(get);
                 Log_OC.e(TAG, "Failed response while getting users/groups from the server");
 
                 if (response != null) {
@@ -142,6 +142,10 @@ public class GetCapabilitiesRemoteOperation extends RemoteOperation {
 
     // DirectEditing
     private static final String NODE_DIRECT_EDITING = "directEditing";
+
+    // chunked upload
+    private static final String NODE_CHUNKED_UPLOAD = "chunked_upload";
+    private static final String PROPERTY_MAX_SIZE = "max_size";
         
     // activity
     private static final String NODE_ACTIVITY = "activity";
@@ -310,6 +314,16 @@ public class GetCapabilitiesRemoteOperation extends RemoteOperation {
                                 capability.setDirectEditingEtag(respDirectEditing.getString("etag"));
                             }
 
+                            // chunked upload
+                            if (respFiles.has(NODE_CHUNKED_UPLOAD)) {
+                                JSONObject respChunkedUpload = respFiles.getJSONObject(NODE_CHUNKED_UPLOAD);
+
+                                if (respChunkedUpload.has(PROPERTY_MAX_SIZE)) {
+                                    capability.setFilesChunkedUploadMaxSize(
+                                            respChunkedUpload.getLong(PROPERTY_MAX_SIZE));
+                                }
+                            }
+
                             Log_OC.d(TAG, "*** Added " + NODE_FILES);
                         }
 
@@ -496,7 +510,7 @@ public class GetCapabilitiesRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(false, get);
-                String response = get.getResponseBodyAsString();
+                String response = RemoteOperationResult.getResponseBodyAsString(get);
                 Log_OC.e(TAG, "Failed response while getting capabilities from the server ");
                 if (response != null) {
                     Log_OC.e(TAG, "*** status code: " + status + "; response message: " + response);
@@ -82,6 +82,7 @@ public class OCCapability {
     private CapabilityBooleanType filesUndelete;
     private CapabilityBooleanType filesVersioning;
     private CapabilityBooleanType filesFileDrop;
+    private long filesChunkedUploadMaxSize; // 0 if not advertised by the server
 
     private CapabilityBooleanType supportsNotificationsV1;
     private CapabilityBooleanType supportsNotificationsV2;
@@ -147,6 +148,7 @@ public class OCCapability {
         filesUndelete = CapabilityBooleanType.UNKNOWN;
         filesVersioning = CapabilityBooleanType.UNKNOWN;
         filesFileDrop = CapabilityBooleanType.UNKNOWN;
+        filesChunkedUploadMaxSize = 0;
 
         supportsNotificationsV1 = CapabilityBooleanType.UNKNOWN;
         supportsNotificationsV2 = CapabilityBooleanType.UNKNOWN;
@@ -64,7 +64,7 @@ public class EmptyTrashbinRemoteOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(isSuccess(status), delete);
 
-            client.exhaustResponse(delete.getResponseBodyAsStream());
+            client.exhaustResponse(delete);
         } catch (IOException e) {
             result = new RemoteOperationResult(e);
             Log.e(TAG, "Empty trashbin failed: " + result.getLogMessage(), e);
@@ -28,6 +28,8 @@
 package com.owncloud.android.lib.resources.trashbin;
 
 import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.MultiStatusReader;
+import com.owncloud.android.lib.common.network.StreamingPropFindMethod;
 import com.owncloud.android.lib.common.network.WebdavEntry;
 import com.owncloud.android.lib.common.network.WebdavUtils;
 import com.owncloud.android.lib.common.operations.RemoteOperation;
@@ -37,10 +39,11 @@ import com.owncloud.android.lib.resources.trashbin.model.TrashbinFile;
 
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.jackrabbit.webdav.DavConstants;
-import org.apache.jackrabbit.webdav.MultiStatus;
-import org.apache.jackrabbit.webdav.client.methods.PropFindMethod;
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
 import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -71,13 +74,15 @@ public class ReadTrashbinFolderRemoteOperation extends RemoteOperation {
     @Override
     protected RemoteOperationResult run(OwnCloudClient client) {
         RemoteOperationResult result = null;
-        PropFindMethod query = null;
+        StreamingPropFindMethod query = null;
 
         try {
             String baseUri = client.getNewWebdavUri() + "/trashbin/" + client.getUserId() + "/trash";
             DavPropertyNameSet propSet = WebdavUtils.getTrashbinPropSet();
                 
-            query = new PropFindMethod(baseUri + WebdavUtils.encodePath(remotePath), propSet, DavConstants.DEPTH_1);
+            query = new StreamingPropFindMethod(baseUri + WebdavUtils.encodePath(remotePath),
+                                                propSet,
+                                                DavConstants.DEPTH_1);
             int status = client.executeMethod(query);
 
             // check and process response
@@ -85,8 +90,12 @@ public class ReadTrashbinFolderRemoteOperation extends RemoteOperation {
             
             if (isSuccess) {
                 // get data from remote folder
-                MultiStatus dataInServer = query.getResponseBodyAsMultiStatus();
-                readData(dataInServer, client);
+                MultiStatusReader dataInServer = query.getResponseBodyAsMultiStatusReader();
+                try {
+                    readData(dataInServer, client);
+                } finally {
+                    dataInServer.close();
+                }
 
                 // Result of the operation
                 result = new RemoteOperationResult(true, query);
@@ -96,7 +105,7 @@ public class ReadTrashbinFolderRemoteOperation extends RemoteOperation {
                 }
             } else {
                 // synchronization failed
-                client.exhaustResponse(query.getResponseBodyAsStream());
+                client.exhaustResponse(query);
                 result = new RemoteOperationResult(false, query);
             }
         } catch (Exception e) {
@@ -128,21 +137,27 @@ public class ReadTrashbinFolderRemoteOperation extends RemoteOperation {
     /**
      * Read the data retrieved from the server about the contents of the target folder
      *
-     * @param remoteData Full response got from the server with the data of the target
+     * @param remoteData Reader over the response got from the server with the data of the target
      *                   folder and its direct children.
      * @param client     Client instance to the remote server where the data were retrieved.
      */
-    private void readData(MultiStatus remoteData, OwnCloudClient client) {
+    private void readData(MultiStatusReader remoteData, OwnCloudClient client)
+        throws IOException, XmlPullParserException {
         folderAndFiles = new ArrayList<>();
 
         // parse data from remote folder
         WebdavEntry we;
         String splitElement = client.getNewWebdavUri().getPath();
 
-        // loop to update every child
-        for (int i = 1; i < remoteData.getResponses().length; ++i) {
-            we = new WebdavEntry(remoteData.getResponses()[i], splitElement);
-            folderAndFiles.add(new TrashbinFile(we, client.getUserId()));
+        // skip the target folder itself
+        if (remoteData.next() != null) {
+            MultiStatusResponse response;
+
+            // loop to update every child
+            while ((response = remoteData.next()) != null) {
+                we = new WebdavEntry(response, splitElement);
+                folderAndFiles.add(new TrashbinFile(we, client.getUserId()));
+            }
         }
     }
 }
@@ -84,7 +84,7 @@ public class RestoreTrashbinFileRemoteOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(isSuccess(status), move);
 
-            client.exhaustResponse(move.getResponseBodyAsStream());
+            client.exhaustResponse(move);
         } catch (IOException e) {
             result = new RemoteOperationResult(e);
             Log.e(TAG, "Restore trashbin file " + sourcePath + " failed: " + result.getLogMessage(), e);
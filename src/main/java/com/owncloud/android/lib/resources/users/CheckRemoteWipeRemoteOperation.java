@@ -83,7 +83,7 @@ public class CheckRemoteWipeRemoteOperation extends RemoteOperation {
                 result = new RemoteOperationResult(false, postMethod);
             }
 
-            client.exhaustResponse(postMethod.getResponseBodyAsStream());
+            client.exhaustResponse(postMethod);
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
             Log_OC.e(TAG,
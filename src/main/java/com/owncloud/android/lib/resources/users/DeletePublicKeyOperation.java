@@ -64,7 +64,7 @@ public class DeletePublicKeyOperation extends RemoteOperation {
 
             result = new RemoteOperationResult(status == HttpStatus.SC_OK, postMethod);
 
-            client.exhaustResponse(postMethod.getResponseBodyAsStream());
+            client.exhaustResponse(postMethod);
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
             Log_OC.e(TAG, "Deletion of public key failed: " + result.getLogMessage(), result.getException());
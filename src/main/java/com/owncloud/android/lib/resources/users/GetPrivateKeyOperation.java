@@ -78,7 +78,7 @@ public class GetPrivateKeyOperation extends OCSRemoteOperation {
                 result.setData(keys);
             } else {
                 result = new RemoteOperationResult(false, getMethod);
-                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                client.exhaustResponse(getMethod);
             }
 
         } catch (Exception e) {
@@ -86,7 +86,7 @@ public class GetPublicKeyOperation extends RemoteOperation {
                 result.setData(keys);
             } else {
                 result = new RemoteOperationResult(false, getMethod);
-                client.exhaustResponse(getMethod.getResponseBodyAsStream());
+                client.exhaustResponse(getMethod);
             }
         } catch (Exception e) {
             result = new RemoteOperationResult(e);
@@ -133,7 +133,7 @@ public class GetUserAvatarRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(false, get);
-                client.exhaustResponse(get.getResponseBodyAsStream());
+                client.exhaustResponse(get);
             }
 
         } catch (Exception e) {
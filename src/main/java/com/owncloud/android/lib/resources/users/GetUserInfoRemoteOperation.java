@@ -114,7 +114,7 @@ public class GetUserInfoRemoteOperation extends OCSRemoteOperation {
                 result.setData(data);
             } else {
                 result = new RemoteOperationResult(false, get);
-                String response = get.getResponseBodyAsString();
+                String response = RemoteOperationResult.getResponseBodyAsString(get);
                 Log_OC.e(TAG, "Failed response while getting user information ");
                 if (response != null) {
                     Log_OC.e(TAG, "*** status code: " + status + " ; response message: " + response);
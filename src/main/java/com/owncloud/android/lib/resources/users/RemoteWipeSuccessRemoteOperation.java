@@ -69,7 +69,7 @@ public class RemoteWipeSuccessRemoteOperation extends RemoteOperation {
             postMethod.setParameter(TOKEN, appToken);
 
             int status = client.executeMethod(postMethod, SYNC_READ_TIMEOUT, SYNC_CONNECTION_TIMEOUT);
-            client.exhaustResponse(postMethod.getResponseBodyAsStream());
+            client.exhaustResponse(postMethod);
 
             if (HttpStatus.SC_OK == status) {
                 result = new RemoteOperationResult(RemoteOperationResult.ResultCode.OK);
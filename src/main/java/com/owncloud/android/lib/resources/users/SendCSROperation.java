@@ -96,7 +96,7 @@ public class SendCSROperation extends RemoteOperation {
                 result.setData(keys);
             } else {
                 result = new RemoteOperationResult(false, postMethod);
-                client.exhaustResponse(postMethod.getResponseBodyAsStream());
+                client.exhaustResponse(postMethod);
             }
 
         } catch (Exception e) {
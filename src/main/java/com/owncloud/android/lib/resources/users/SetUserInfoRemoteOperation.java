@@ -87,7 +87,7 @@ public class SetUserInfoRemoteOperation extends RemoteOperation {
 
             } else {
                 result = new RemoteOperationResult(false, method);
-                String response = method.getResponseBodyAsString();
+                String response = RemoteOperationResult.getResponseBodyAsString(method);
                 Log_OC.e(TAG, "Failed response while setting user information");
                 Log_OC.e(TAG, "*** status code: " + status + "; response: " + response);
             }
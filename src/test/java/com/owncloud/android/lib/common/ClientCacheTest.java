@@ -0,0 +1,58 @@
+package com.owncloud.android.lib.common;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ClientCacheTest {
+
+    private static class FakeTimeSource implements ClientCache.TimeSource {
+        long now = 1000;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverSize() {
+        FakeTimeSource time = new FakeTimeSource();
+        ClientCache cache = new ClientCache(2, 60000, time);
+        List<ClientCache.Entry> evicted = new ArrayList<>();
+
+        ClientCache.Entry first = cache.getOrCreate("first", evicted);
+        time.now += 5;
+        ClientCache.Entry second = cache.getOrCreate("second", evicted);
+        time.now += 5;
+        Assert.assertSame(first, cache.get("first"));
+        time.now += 5;
+        cache.getOrCreate("third", evicted);
+
+        Assert.assertEquals(1, evicted.size());
+        Assert.assertSame(second, evicted.get(0));
+        Assert.assertNull(cache.get("second"));
+        Assert.assertSame(first, cache.get("first"));
+    }
+
+    @Test
+    public void evictsIdleEntries() {
+        FakeTimeSource time = new FakeTimeSource();
+        ClientCache cache = new ClientCache(10, 20, time);
+        List<ClientCache.Entry> evicted = new ArrayList<>();
+
+        ClientCache.Entry idle = cache.getOrCreate("idle", evicted);
+        time.now += 20;
+        Assert.assertSame(idle, cache.get("idle"));
+        time.now += 21;
+
+        Assert.assertNull(cache.get("idle"));
+        ClientCache.Entry fresh = cache.getOrCreate("idle", evicted);
+
+        Assert.assertNotSame(idle, fresh);
+        Assert.assertEquals(1, evicted.size());
+        Assert.assertSame(idle, evicted.get(0));
+    }
+}
@@ -0,0 +1,139 @@
+package com.owncloud.android.lib.common;
+
+import android.net.Uri;
+
+import com.owncloud.android.lib.common.network.RequestAbortScope;
+
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.SimpleHttpConnectionManager;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class OwnCloudClientTest {
+
+    private static final long MAX_EXHAUST_LENGTH = 64 * 1024;
+
+    @Test
+    public void exhaustResponseKeepsHeadConnection() {
+        HeadMethod head = new HeadMethod("http://localhost/file") {
+            @Override
+            public Header getResponseHeader(String headerName) {
+                return new Header("Content-Length", String.valueOf(10 * MAX_EXHAUST_LENGTH));
+            }
+        };
+
+        OwnCloudClient.exhaustResponse(head, MAX_EXHAUST_LENGTH);
+
+        Assert.assertFalse(head.isAborted());
+    }
+
+    @Test
+    public void exhaustResponseAbortsLargeBody() {
+        GetMethod get = new GetMethod("http://localhost/file") {
+            @Override
+            public Header getResponseHeader(String headerName) {
+                return new Header("Content-Length", String.valueOf(10 * MAX_EXHAUST_LENGTH));
+            }
+
+            @Override
+            public InputStream getResponseBodyAsStream() {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+
+            @Override
+            public int getStatusCode() {
+                return HttpStatus.SC_OK;
+            }
+        };
+
+        OwnCloudClient.exhaustResponse(get, MAX_EXHAUST_LENGTH);
+
+        Assert.assertTrue(get.isAborted());
+    }
+
+    @Test
+    public void abortScopeInterruptsBodyRead() throws Exception {
+        final ServerSocket serverSocket = new ServerSocket(0);
+        final CountDownLatch finished = new CountDownLatch(1);
+        try {
+            // sends the headers and a few bytes of the body, then stalls
+            Thread server = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        InputStream request = socket.getInputStream();
+                        byte[] buffer = new byte[4096];
+                        while (request.read(buffer) > 0 && request.available() > 0) {
+                            // skip the request
+                        }
+                        OutputStream outputStream = socket.getOutputStream();
+                        outputStream.write(("HTTP/1.1 200 OK\r\nContent-Length: 1000000\r\n\r\nstart")
+                                               .getBytes("UTF-8"));
+                        outputStream.flush();
+                        finished.await(10, TimeUnit.SECONDS);
+                        socket.close();
+                    } catch (Exception e) {
+                        // the test fails on the client side
+                    }
+                }
+            });
+            server.start();
+
+            OwnCloudClient client = new OwnCloudClient(Mockito.mock(Uri.class), new SimpleHttpConnectionManager());
+            GetMethod get = new GetMethod("http://localhost:" + serverSocket.getLocalPort() + "/file");
+            RequestAbortScope scope = new RequestAbortScope();
+            scope.enter();
+            try {
+                Assert.assertEquals(HttpStatus.SC_OK, client.executeMethod(get));
+                final InputStream body = get.getResponseBodyAsStream();
+                Assert.assertTrue(body.read() >= 0);
+
+                final CountDownLatch readFailed = new CountDownLatch(1);
+                Thread aborter = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(100);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        // as done by RemoteOperationFuture.cancel from another thread
+                        scope.abort();
+                    }
+                });
+                aborter.start();
+
+                try {
+                    byte[] buffer = new byte[4096];
+                    while (body.read(buffer) >= 0) {
+                        // blocks once the bytes sent are consumed, until the method is aborted
+                    }
+                } catch (IOException e) {
+                    readFailed.countDown();
+                }
+
+                Assert.assertEquals(0, readFailed.getCount());
+                Assert.assertTrue(get.isAborted());
+            } finally {
+                scope.exit();
+            }
+        } finally {
+            finished.countDown();
+            serverSocket.close();
+        }
+    }
+}
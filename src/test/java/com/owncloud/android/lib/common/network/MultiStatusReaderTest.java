@@ -0,0 +1,122 @@
+/* Nextcloud Android Library is available under MIT license
+ *
+ *   Copyright (C) 2020 Nextcloud GmbH
+ *
+ *   Permission is hereby granted, free of charge, to any person obtaining a copy
+ *   of this software and associated documentation files (the "Software"), to deal
+ *   in the Software without restriction, including without limitation the rights
+ *   to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *   copies of the Software, and to permit persons to whom the Software is
+ *   furnished to do so, subject to the following conditions:
+ *
+ *   The above copyright notice and this permission notice shall be included in
+ *   all copies or substantial portions of the Software.
+ *
+ *   THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ *   EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ *   MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ *   NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS
+ *   BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN
+ *   ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN
+ *   CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *   THE SOFTWARE.
+ *
+ */
+
+package com.owncloud.android.lib.common.network;
+
+import org.apache.jackrabbit.webdav.MultiStatusResponse;
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertySet;
+import org.apache.jackrabbit.webdav.xml.Namespace;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+
+public class MultiStatusReaderTest {
+
+    private static final String BODY = "<?xml version=\"1.0\"?>\n" +
+        "<d:multistatus xmlns:d=\"DAV:\" xmlns:oc=\"http://owncloud.org/ns\" xmlns:nc=\"http://nextcloud.org/ns\">\n" +
+        " <d:response>\n" +
+        "  <d:href>/remote.php/webdav/folder/</d:href>\n" +
+        "  <d:propstat>\n" +
+        "   <d:prop>\n" +
+        "    <d:getetag>&quot;5e4f&quot;</d:getetag>\n" +
+        "    <d:resourcetype><d:collection/></d:resourcetype>\n" +
+        "    <oc:size>1024</oc:size>\n" +
+        "   </d:prop>\n" +
+        "   <d:status>HTTP/1.1 200 OK</d:status>\n" +
+        "  </d:propstat>\n" +
+        "  <d:propstat>\n" +
+        "   <d:prop>\n" +
+        "    <d:getcontentlength/>\n" +
+        "   </d:prop>\n" +
+        "   <d:status>HTTP/1.1 404 Not Found</d:status>\n" +
+        "  </d:propstat>\n" +
+        " </d:response>\n" +
+        " <d:response>\n" +
+        "  <d:href>/remote.php/webdav/folder/file.txt</d:href>\n" +
+        "  <d:propstat>\n" +
+        "   <d:prop>\n" +
+        "    <d:resourcetype/>\n" +
+        "    <nc:sharees>\n" +
+        "     <nc:sharee><nc:id>alice</nc:id><nc:display-name>Alice</nc:display-name></nc:sharee>\n" +
+        "     <nc:sharee><nc:id>bob</nc:id><nc:display-name>Bob</nc:display-name></nc:sharee>\n" +
+        "    </nc:sharees>\n" +
+        "   </d:prop>\n" +
+        "   <d:status>HTTP/1.1 200 OK</d:status>\n" +
+        "  </d:propstat>\n" +
+        " </d:response>\n" +
+        "</d:multistatus>";
+
+    @Test
+    public void readsResponsesInOrder() throws Exception {
+        Namespace ocNamespace = Namespace.getNamespace(WebdavEntry.NAMESPACE_OC);
+        MultiStatusReader reader = new MultiStatusReader(new ByteArrayInputStream(BODY.getBytes("UTF-8")));
+
+        MultiStatusResponse folder = reader.next();
+        Assert.assertEquals("/remote.php/webdav/folder/", folder.getHref());
+
+        DavPropertySet found = folder.getProperties(200);
+        Assert.assertEquals("\"5e4f\"", found.get(DavPropertyName.GETETAG).getValue());
+        Assert.assertTrue(found.get(DavPropertyName.RESOURCETYPE).getValue() instanceof Element);
+        Assert.assertEquals("1024", found.get("size", ocNamespace).getValue());
+
+        DavPropertySet notFound = folder.getProperties(404);
+        Assert.assertNotNull(notFound.get(DavPropertyName.GETCONTENTLENGTH));
+        Assert.assertNull(notFound.get(DavPropertyName.GETCONTENTLENGTH).getValue());
+
+        MultiStatusResponse file = reader.next();
+        Assert.assertEquals("/remote.php/webdav/folder/file.txt", file.getHref());
+        Assert.assertNull(file.getProperties(200).get(DavPropertyName.RESOURCETYPE).getValue());
+
+        Object sharees = file.getProperties(200)
+            .get(WebdavEntry.EXTENDED_PROPERTY_SHAREES, Namespace.getNamespace(WebdavEntry.NAMESPACE_NC))
+            .getValue();
+        Assert.assertTrue(sharees instanceof List);
+        Assert.assertEquals(2, ((List) sharees).size());
+
+        Assert.assertNull(reader.next());
+        reader.close();
+    }
+
+    @Test
+    public void feedsWebdavEntry() throws Exception {
+        MultiStatusReader reader = new MultiStatusReader(new ByteArrayInputStream(BODY.getBytes("UTF-8")));
+
+        WebdavEntry folder = new WebdavEntry(reader.next(), "/remote.php/webdav");
+        Assert.assertTrue(folder.isDirectory());
+        Assert.assertEquals("5e4f", folder.getETag());
+        Assert.assertEquals(1024, folder.getSize());
+
+        WebdavEntry file = new WebdavEntry(reader.next(), "/remote.php/webdav");
+        Assert.assertFalse(file.isDirectory());
+        Assert.assertEquals("/folder/file.txt", file.getPath());
+        Assert.assertEquals(2, file.getSharees().length);
+
+        reader.close();
+    }
+}
@@ -0,0 +1,34 @@
+package com.owncloud.android.lib.common.network;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PermanentRedirectCacheTest {
+
+    @Test
+    public void followsChainedRedirections() {
+        PermanentRedirectCache cache = new PermanentRedirectCache();
+        cache.put("http://cloud/remote.php/webdav/a", "https://cloud/remote.php/webdav/a");
+        cache.put("https://cloud/remote.php/webdav/a", "https://cloud/nc/remote.php/webdav/a");
+
+        Assert.assertEquals("https://cloud/nc/remote.php/webdav/a", cache.get("http://cloud/remote.php/webdav/a"));
+        Assert.assertNull(cache.get("http://cloud/remote.php/webdav/b"));
+    }
+
+    @Test
+    public void stopsOnRedirectionLoops() {
+        PermanentRedirectCache cache = new PermanentRedirectCache();
+        cache.put("http://cloud/a", "http://cloud/b");
+        cache.put("http://cloud/b", "http://cloud/a");
+
+        Assert.assertNotNull(cache.get("http://cloud/a"));
+    }
+
+    @Test
+    public void onlyPermanentStatusesAreCached() {
+        Assert.assertTrue(PermanentRedirectCache.isPermanentRedirection(301));
+        Assert.assertTrue(PermanentRedirectCache.isPermanentRedirection(308));
+        Assert.assertFalse(PermanentRedirectCache.isPermanentRedirection(302));
+        Assert.assertFalse(PermanentRedirectCache.isPermanentRedirection(307));
+    }
+}
@@ -0,0 +1,70 @@
+package com.owncloud.android.lib.common.network;
+
+import org.apache.jackrabbit.webdav.property.DavPropertyName;
+import org.apache.jackrabbit.webdav.property.DavPropertyNameSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+public class WebdavUtilsTest {
+
+    @Test
+    public void parseRfc1123Date() throws Exception {
+        Assert.assertEquals(utc("2020-03-03 10:15:30.000"), WebdavUtils.parseResponseDate("Tue, 03 Mar 2020 10:15:30 GMT"));
+        Assert.assertEquals(utc("2000-02-29 23:59:59.000"), WebdavUtils.parseResponseDate("Tue, 29 Feb 2000 23:59:59 GMT"));
+        Assert.assertEquals(utc("1970-01-01 00:00:00.000"), WebdavUtils.parseResponseDate("Thu, 01 Jan 1970 00:00:00 GMT"));
+    }
+
+    @Test
+    public void parseIso8601Date() throws Exception {
+        Assert.assertEquals(utc("2020-03-03 10:15:30.000"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30+00:00"));
+        Assert.assertEquals(utc("2020-03-03 08:15:30.000"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30+02:00"));
+        Assert.assertEquals(utc("2020-03-03 15:45:30.000"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30-0530"));
+        Assert.assertEquals(utc("2020-03-03 10:15:30.000"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30Z"));
+        Assert.assertEquals(utc("2020-03-03 10:15:30.120"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30.12Z"));
+        Assert.assertEquals(utc("2020-03-03 10:15:30.123"), WebdavUtils.parseResponseDate("2020-03-03T10:15:30.123456Z"));
+    }
+
+    @Test
+    public void parseLegacyDate() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+        String date = "Tue Mar 03 10:15:30 GMT 2020";
+
+        Assert.assertEquals(format.parse(date), WebdavUtils.parseResponseDate(date));
+
+        // out of range fields are left to the lenient legacy formats
+        format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        date = "Mon, 30 Feb 2020 10:15:30 GMT";
+        Assert.assertEquals(format.parse(date), WebdavUtils.parseResponseDate(date));
+    }
+
+    @Test
+    public void parseInvalidDate() {
+        Assert.assertNull(WebdavUtils.parseResponseDate(null));
+        Assert.assertNull(WebdavUtils.parseResponseDate(""));
+        Assert.assertNull(WebdavUtils.parseResponseDate("not a date"));
+    }
+
+    @Test
+    public void propSetsCanBeModifiedByCallers() {
+        DavPropertyNameSet propSet = WebdavUtils.getFilePropSet();
+        Assert.assertFalse(propSet.contains(WebdavEntry.PROPERTY_NAME_NOTE));
+
+        propSet.add(WebdavEntry.PROPERTY_NAME_NOTE);
+        propSet.remove(DavPropertyName.GETETAG);
+
+        Assert.assertTrue(propSet.contains(WebdavEntry.PROPERTY_NAME_NOTE));
+        Assert.assertFalse(WebdavUtils.getFilePropSet().contains(WebdavEntry.PROPERTY_NAME_NOTE));
+        Assert.assertTrue(WebdavUtils.getFilePropSet().contains(DavPropertyName.GETETAG));
+    }
+
+    private static Date utc(String date) throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.parse(date);
+    }
+}
@@ -0,0 +1,123 @@
+package com.owncloud.android.lib.common.operations;
+
+import com.owncloud.android.lib.common.OwnCloudClient;
+import com.owncloud.android.lib.common.network.RequestAbortScope;
+import com.owncloud.android.lib.common.operations.RemoteOperationResult.ResultCode;
+
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchOperationExecutorTest {
+
+    private final OwnCloudClient client = Mockito.mock(OwnCloudClient.class);
+
+    @Test
+    public void limitsOperationsInProgress() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        List<RemoteOperation> operations = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            final ResultCode code = i % 2 == 0 ? ResultCode.OK : ResultCode.FILE_NOT_FOUND;
+            operations.add(new RemoteOperation() {
+                @Override
+                protected RemoteOperationResult run(OwnCloudClient client) {
+                    int now = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), now));
+                    }
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return new RemoteOperationResult(code);
+                }
+            });
+        }
+
+        BatchOperationResult result = new BatchOperationExecutor(client, 3, false).execute(operations);
+
+        Assert.assertTrue("max running " + maxRunning.get(), maxRunning.get() <= 3);
+        Assert.assertEquals(12, result.getResults().size());
+        Assert.assertEquals(6, result.getSuccessCount());
+        Assert.assertEquals(6, result.getFailureCount());
+        for (int i = 0; i < 12; i++) {
+            Assert.assertEquals(i % 2 == 0 ? ResultCode.OK : ResultCode.FILE_NOT_FOUND,
+                                result.getResult(i).getCode());
+        }
+    }
+
+    @Test
+    public void failFastAbortsRunningAndSkipsPendingOperations() throws Exception {
+        final CountDownLatch attached = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+        final AtomicInteger started = new AtomicInteger();
+        List<RemoteOperation> operations = new ArrayList<>();
+
+        // fails once the second operation has a request in flight
+        operations.add(new RemoteOperation() {
+            @Override
+            protected RemoteOperationResult run(OwnCloudClient client) {
+                started.incrementAndGet();
+                try {
+                    attached.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new RemoteOperationResult(ResultCode.FILE_NOT_FOUND);
+            }
+        });
+        // blocks in its request until aborted
+        operations.add(new RemoteOperation() {
+            @Override
+            protected RemoteOperationResult run(OwnCloudClient client) {
+                started.incrementAndGet();
+                GetMethod method = new GetMethod("http://localhost/") {
+                    @Override
+                    public void abort() {
+                        super.abort();
+                        aborted.countDown();
+                    }
+                };
+                try {
+                    RequestAbortScope.attach(method);
+                    attached.countDown();
+                    aborted.await(5, TimeUnit.SECONDS);
+                    RequestAbortScope.detach(method);
+                } catch (InterruptedIOException | InterruptedException e) {
+                    return new RemoteOperationResult(e);
+                }
+                return new RemoteOperationResult(ResultCode.CANCELLED);
+            }
+        });
+        for (int i = 0; i < 8; i++) {
+            operations.add(new RemoteOperation() {
+                @Override
+                protected RemoteOperationResult run(OwnCloudClient client) {
+                    started.incrementAndGet();
+                    return new RemoteOperationResult(ResultCode.OK);
+                }
+            });
+        }
+
+        BatchOperationResult result = new BatchOperationExecutor(client, 2, true).execute(operations);
+
+        Assert.assertEquals(0, aborted.getCount());
+        Assert.assertEquals(2, started.get());
+        Assert.assertEquals(ResultCode.FILE_NOT_FOUND, result.getResult(0).getCode());
+        for (int i = 1; i < operations.size(); i++) {
+            Assert.assertEquals(ResultCode.CANCELLED, result.getResult(i).getCode());
+        }
+        Assert.assertFalse(result.isSuccess());
+    }
+}
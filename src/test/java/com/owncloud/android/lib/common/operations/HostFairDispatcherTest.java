@@ -0,0 +1,69 @@
+package com.owncloud.android.lib.common.operations;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class HostFairDispatcherTest {
+
+    @Test
+    public void takesTasksOfHostsInTurn() {
+        final List<Runnable> pulls = new ArrayList<>();
+        HostFairDispatcher dispatcher = new HostFairDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                pulls.add(runnable);
+            }
+        });
+        List<String> order = new ArrayList<>();
+
+        dispatcher.submit("a", record(order, "a1"));
+        dispatcher.submit("a", record(order, "a2"));
+        dispatcher.submit("a", record(order, "a3"));
+        dispatcher.submit("b", record(order, "b1"));
+        dispatcher.submit("b", record(order, "b2"));
+        dispatcher.submit("c", record(order, "c1"));
+
+        Assert.assertEquals(6, pulls.size());
+        for (Runnable pull : pulls) {
+            pull.run();
+        }
+
+        Assert.assertEquals(Arrays.asList("a1", "b1", "c1", "a2", "b2", "a3"), order);
+    }
+
+    @Test
+    public void hostSubmittingLaterIsNotStarved() {
+        final List<Runnable> pulls = new ArrayList<>();
+        HostFairDispatcher dispatcher = new HostFairDispatcher(new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                pulls.add(runnable);
+            }
+        });
+        List<String> order = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.submit("busy", record(order, "busy"));
+        }
+        pulls.remove(0).run();
+        dispatcher.submit("late", record(order, "late"));
+        pulls.remove(0).run();
+        pulls.remove(0).run();
+
+        Assert.assertEquals(Arrays.asList("busy", "busy", "late"), order);
+    }
+
+    private static Runnable record(final List<String> order, final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                order.add(name);
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.owncloud.android.lib.common.operations;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.SimpleHttpConnectionManager;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+
+public class RemoteOperationResultTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private ServerSocket serverSocket;
+
+    @After
+    public void tearDown() throws Exception {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    @Test
+    public void errorBodyCanBeReadAgain() throws Exception {
+        String body = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+            "<d:error xmlns:d=\"DAV:\" xmlns:s=\"http://sabredav.org/ns\">\n" +
+            "  <s:exception>Sabre\\DAV\\Exception\\BadRequest</s:exception>\n" +
+            "  <s:message>Bad request</s:message>\n" +
+            "</d:error>";
+        GetMethod get = execute("HTTP/1.1 400 Bad Request\r\n" +
+                                    "Content-Type: application/xml; charset=utf-8\r\n" +
+                                    "Content-Length: " + body.getBytes(UTF_8).length + "\r\n" +
+                                    "\r\n" +
+                                    body);
+
+        RemoteOperationResult result = new RemoteOperationResult(false, get);
+
+        Assert.assertEquals(HttpStatus.SC_BAD_REQUEST, result.getHttpCode());
+        Assert.assertEquals(body, get.getResponseBodyAsString());
+        Assert.assertEquals(body, RemoteOperationResult.getResponseBodyAsString(get));
+    }
+
+    @Test
+    public void longHtmlErrorBodyIsDiscarded() throws Exception {
+        StringBuilder body = new StringBuilder("<html><body>");
+        while (body.length() < 4 * RemoteOperationResult.DEFAULT_MAX_ERROR_BODY_LENGTH) {
+            body.append("<p>proxy error</p>");
+        }
+        GetMethod get = execute("HTTP/1.1 400 Bad Request\r\n" +
+                                    "Content-Type: text/html\r\n" +
+                                    "Connection: close\r\n" +
+                                    "\r\n" +
+                                    body);
+
+        RemoteOperationResult result = new RemoteOperationResult(false, get);
+
+        Assert.assertEquals(HttpStatus.SC_BAD_REQUEST, result.getHttpCode());
+        Assert.assertTrue(get.isAborted());
+        Assert.assertNull(RemoteOperationResult.getResponseBodyAsString(get));
+    }
+
+    /**
+     * Executes a GET against a server sending the given raw response once.
+     */
+    private GetMethod execute(final String response) throws Exception {
+        serverSocket = new ServerSocket(0);
+        Thread server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = serverSocket.accept();
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                        // skip the request
+                    }
+                    OutputStream outputStream = socket.getOutputStream();
+                    outputStream.write(response.getBytes(UTF_8));
+                    outputStream.flush();
+                    socket.close();
+                } catch (Exception e) {
+                    // the client failed too
+                }
+            }
+        });
+        server.start();
+
+        GetMethod get = new GetMethod("http://localhost:" + serverSocket.getLocalPort() + "/");
+        new HttpClient(new SimpleHttpConnectionManager()).executeMethod(get);
+        return get;
+    }
+}
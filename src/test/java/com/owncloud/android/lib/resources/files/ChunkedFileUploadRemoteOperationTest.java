@@ -33,6 +33,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ChunkedFileUploadRemoteOperationTest {
@@ -136,6 +137,51 @@ public class ChunkedFileUploadRemoteOperationTest {
         assertTrue(test(existingChunks, expectedMissingChunks, chunkSize, length));
     }
 
+    @Test
+    public void testChunkDispenserFixedSize() {
+        long length = 2 * chunkSize;
+
+        List<Chunk> existingChunks = new ArrayList<>();
+        existingChunks.add(new Chunk(0, 1023));
+        existingChunks.add(new Chunk(1028, 1100));
+
+        List<Chunk> expectedChunks = new ArrayList<>();
+        expectedChunks.add(new Chunk(1024, 1027));
+        expectedChunks.add(new Chunk(1101, 2048));
+
+        List<Chunk> missingRanges = createOperation().checkMissingChunks(existingChunks, length, length + 1);
+        ChunkedFileUploadRemoteOperation.ChunkDispenser sut = new ChunkedFileUploadRemoteOperation.ChunkDispenser(
+            missingRanges, AdaptiveChunkSizer.fixed(chunkSize));
+
+        for (Chunk expectedChunk : expectedChunks) {
+            assertEquals(expectedChunk, sut.next());
+        }
+        assertNull(sut.next());
+    }
+
+    @Test
+    public void testChunkDispenserChangingSize() {
+        long length = 4 * chunkSize;
+
+        List<Chunk> missingRanges = createOperation().checkMissingChunks(new ArrayList<Chunk>(), length, length + 1);
+        AdaptiveChunkSizer chunkSizer = new AdaptiveChunkSizer(chunkSize, 512, 4 * chunkSize);
+        ChunkedFileUploadRemoteOperation.ChunkDispenser sut = new ChunkedFileUploadRemoteOperation.ChunkDispenser(
+            missingRanges, chunkSizer);
+
+        assertEquals(new Chunk(0, 1023), sut.next());
+        chunkSizer.onChunkUploaded(chunkSize, 1);
+        assertEquals(new Chunk(1024, 3071), sut.next());
+        chunkSizer.onChunkFailed();
+        assertEquals(new Chunk(3072, 4095), sut.next());
+        sut.stop();
+        assertNull(sut.next());
+    }
+
+    private ChunkedFileUploadRemoteOperation createOperation() {
+        String modificationTimestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        return new ChunkedFileUploadRemoteOperation(null, null, null, null, modificationTimestamp, false);
+    }
+
     private boolean test(List<Chunk> existingChunks,
                          List<Chunk> expectedMissingChunks,
                          long chunkSize,
@@ -4,8 +4,10 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.security.NoSuchAlgorithmException;
 import java.util.Random;
 import java.util.regex.Pattern;
@@ -35,4 +37,34 @@ public class FileUtilsTest {
             Assert.assertTrue(md5sum, pattern.matcher(md5sum).matches());
         }
     }
+
+    @Test
+    public void contentFingerprint() throws IOException {
+        File file = File.createTempFile("fingerprint", null);
+        try {
+            byte[] content = new byte[4 * FileUtils.FINGERPRINT_BLOCK_SIZE];
+            new Random().nextBytes(content);
+            FileOutputStream outputStream = new FileOutputStream(file);
+            outputStream.write(content);
+            outputStream.close();
+
+            String fingerprint = FileUtils.contentFingerprint(file, "/test.bin");
+            Assert.assertEquals(32, fingerprint.length());
+            Assert.assertTrue(fingerprint, fingerprint.matches("^[0-9a-f]*$"));
+
+            // stable over modification time, depends on the target
+            Assert.assertTrue(file.setLastModified(file.lastModified() - 60000));
+            Assert.assertEquals(fingerprint, FileUtils.contentFingerprint(file, "/test.bin"));
+            Assert.assertNotEquals(fingerprint, FileUtils.contentFingerprint(file, "/other.bin"));
+
+            // changes in the sampled middle block are detected
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.seek(content.length / 2);
+            randomAccessFile.write(content[content.length / 2] + 1);
+            randomAccessFile.close();
+            Assert.assertNotEquals(fingerprint, FileUtils.contentFingerprint(file, "/test.bin"));
+        } finally {
+            file.delete();
+        }
+    }
 }